@@ -0,0 +1,86 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Square.*;
+
+/** Static operations on bitboards: sets of Squares represented as a long,
+ *  in which Square S is present iff bit S.index() is set.  Since
+ *  S.index() is 8 * S.row() + S.col(), bit 0 is a1, bit 7 is h1, and
+ *  bit 63 is h8.
+ *  @author Hankai Xing
+ */
+final class Bitboards {
+
+    /** The empty set of squares. */
+    static final long EMPTY = 0L;
+
+    /** The squares in column a. */
+    static final long COL_A = 0x0101010101010101L;
+
+    /** The squares in column h. */
+    static final long COL_H = COL_A << (BOARD_SIZE - 1);
+
+    /** The squares adjacent to each square, indexed by square index. */
+    static final long[] NEIGHBORS = new long[NUM_SQUARES];
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            for (Square n : s.adjacent()) {
+                NEIGHBORS[s.index()] |= bit(n);
+            }
+        }
+    }
+
+    /** Return the singleton set containing S. */
+    static long bit(Square s) {
+        return 1L << s.index();
+    }
+
+    /** Return the singleton set containing the square whose index is
+     *  INDEX. */
+    static long bit(int index) {
+        return 1L << index;
+    }
+
+    /** Return true iff S is in SET. */
+    static boolean contains(long set, Square s) {
+        return (set & bit(s)) != 0;
+    }
+
+    /** Return the number of squares in SET. */
+    static int size(long set) {
+        return Long.bitCount(set);
+    }
+
+    /** Return the index of the lowest-numbered square in non-empty SET.
+     *  The usual iteration over a set M is
+     *      for (long m = M; m != 0; m &= m - 1) {
+     *          int k = first(m); ...
+     *      } */
+    static int first(long set) {
+        return Long.numberOfTrailingZeros(set);
+    }
+
+    /** Return the set of squares adjacent (orthogonally or diagonally)
+     *  to some square in SET.  The result contains a square of SET only
+     *  if it is adjacent to another square of SET. */
+    static long adjacent(long set) {
+        long horiz = ((set << 1) & ~COL_A) | ((set >>> 1) & ~COL_H);
+        long band = set | horiz;
+        return horiz | (band << BOARD_SIZE) | (band >>> BOARD_SIZE);
+    }
+
+    /** Return the largest subset of PIECES that contains SEED & PIECES and
+     *  is connected via adjacency within PIECES. */
+    static long region(long seed, long pieces) {
+        long result = seed & pieces;
+        long prev;
+        do {
+            prev = result;
+            result = (result | adjacent(result)) & pieces;
+        } while (result != prev);
+        return result;
+    }
+
+}
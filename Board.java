@@ -6,16 +6,20 @@ package loa;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.Random;
 
 import java.util.regex.Pattern;
 
+import static loa.Bitboards.*;
 import static loa.Piece.*;
 import static loa.Square.*;
 
-/** Represents the state of a game of Lines of Action.
+/** Represents the state of a game of Lines of Action.  The position is
+ *  held as two bitboards (see Bitboards), one per color, so that searches
+ *  may work on whole sets of squares through pieces() and occupied()
+ *  rather than square by square.
  *  @author Hankai Xing
  */
 class Board {
@@ -44,23 +48,55 @@ class Board {
         this(INITIAL_PIECES, BP);
     }
 
-    /** A Board whose initial contents and state are copied from
-     *  BOARD. */
+    /** A Board whose initial contents and state, including its move
+     *  history, are copied from BOARD. */
     Board(Board board) {
-        this();
         copyFrom(board);
     }
 
+    /** A Board in the position recorded by SNAPSHOT.  It has no move
+     *  history, but counts the moves made before SNAPSHOT was taken
+     *  toward its move limit. */
+    Board(BoardSnapshot snapshot) {
+        initialize(snapshot.pieces(BP), snapshot.pieces(WP),
+                   snapshot.turn());
+        _movesBefore = snapshot.movesMade();
+        _moveLimit = snapshot.moveLimit();
+    }
+
     /** Set my state to CONTENTS with SIDE to move. */
     void initialize(Piece[][] contents, Piece side) {
-        _moves.clear();
+        long black = EMPTY, white = EMPTY;
         for (int i = 0; i < BOARD_SIZE; i++) {
             for (int j = 0; j < BOARD_SIZE; j++) {
-                Square s = sq(i, j);
-                set(s, contents[j][i]);
+                if (contents[j][i] == BP) {
+                    black |= bit(sq(i, j));
+                } else if (contents[j][i] == WP) {
+                    white |= bit(sq(i, j));
+                }
             }
         }
+        initialize(black, white, side);
+    }
+
+    /** Set my state to that with black pieces on BLACK and white pieces
+     *  on WHITE (bitboards), with SIDE to move. */
+    private void initialize(long black, long white, Piece side) {
+        _numMoves = _movesBefore = _setAt = 0;
+        _blackPieces = _whitePieces = EMPTY;
         _turn = side;
+        _key = side == WP ? WHITE_TO_MOVE_KEY : 0;
+        Arrays.fill(_lineCounts, 0);
+        _blackFeatures.clear();
+        _whiteFeatures.clear();
+        for (long m = black; m != 0; m &= m - 1) {
+            put(ALL_SQUARES[first(m)], BP);
+        }
+        for (long m = white; m != 0; m &= m - 1) {
+            put(ALL_SQUARES[first(m)], WP);
+        }
+        _blackRegions.initialize(_blackPieces);
+        _whiteRegions.initialize(_whitePieces);
         _moveLimit = DEFAULT_MOVE_LIMIT;
     }
 
@@ -69,18 +105,60 @@ class Board {
         initialize(INITIAL_PIECES, BP);
     }
 
-    /** Set my state to a copy of BOARD. */
+    /** Set my state to a copy of BOARD, including its move history, so
+     *  that moves made on BOARD may be retracted from me. */
     void copyFrom(Board board) {
         if (board == this) {
             return;
         }
+        if (_history.length < board._numMoves) {
+            _history = new int[board._history.length];
+        }
+        System.arraycopy(board._history, 0, _history, 0, board._numMoves);
+        _numMoves = board._numMoves;
+        _setAt = board._setAt;
+        _movesBefore = board._movesBefore;
+        _moveLimit = board._moveLimit;
         _turn = board._turn;
-        System.arraycopy(board._board, 0, _board, 0, _board.length);
+        _key = board._key;
+        _blackPieces = board._blackPieces;
+        _whitePieces = board._whitePieces;
+        System.arraycopy(board._lineCounts, 0, _lineCounts, 0, NUM_LINES);
+        _blackRegions.copyFrom(board._blackRegions);
+        _whiteRegions.copyFrom(board._whiteRegions);
+        _blackFeatures.copyFrom(board._blackFeatures);
+        _whiteFeatures.copyFrom(board._whiteFeatures);
     }
 
     /** Return the contents of the square at SQ. */
     Piece get(Square sq) {
-        return _board[sq.index()];
+        long b = bit(sq);
+        if ((_blackPieces & b) != 0) {
+            return BP;
+        } else if ((_whitePieces & b) != 0) {
+            return WP;
+        } else {
+            return EMP;
+        }
+    }
+
+    /** Return the set of squares containing P, as a bitboard.  For P ==
+     *  EMP, this is the set of empty squares. */
+    long pieces(Piece p) {
+        switch (p) {
+        case BP:
+            return _blackPieces;
+        case WP:
+            return _whitePieces;
+        default:
+            return ~occupied();
+        }
+    }
+
+    /** Return the set of squares containing a piece of either color, as a
+     *  bitboard. */
+    long occupied() {
+        return _blackPieces | _whitePieces;
     }
 
     /** Set the square at SQ to V and set the side that is to move next
@@ -89,9 +167,41 @@ class Board {
         if (sq.col() < 0 || sq.col() > 7 || sq.row() < 0 || sq.row() > 7) {
             throw new IllegalArgumentException("Invalid square location");
         }
-        _board[sq.index()] = v;
+        put(sq, v);
+        computeRegions();
+        _setAt = _numMoves;
         if (next != null) {
-            _turn = next;
+            setTurn(next);
+        }
+    }
+
+    /** Set the square at SQ to V, keeping the line counts, key, and
+     *  features up to date. */
+    private void put(Square sq, Piece v) {
+        long b = bit(sq);
+        int k = sq.index();
+        Piece old = get(sq);
+        boolean wasOccupied = old != EMP;
+        if (wasOccupied) {
+            _key ^= PIECE_KEYS[old.ordinal()][k];
+            features(old).remove(k, pieces(old));
+        }
+        if (v != EMP) {
+            _key ^= PIECE_KEYS[v.ordinal()][k];
+            features(v).add(k, pieces(v) & ~b);
+        }
+        _blackPieces &= ~b;
+        _whitePieces &= ~b;
+        if (v == BP) {
+            _blackPieces |= b;
+        } else if (v == WP) {
+            _whitePieces |= b;
+        }
+        if (wasOccupied != (v != EMP)) {
+            int delta = wasOccupied ? -1 : 1;
+            for (int dir = 0; dir < 4; dir += 1) {
+                _lineCounts[sq.line(dir)] += delta;
+            }
         }
     }
 
@@ -110,34 +220,90 @@ class Board {
         _moveLimit = 2 * limit;
     }
 
+    /** Return the limit on the number of moves by both sides, at which
+     *  the game is tied. */
+    int moveLimit() {
+        return _moveLimit;
+    }
+
     /** Assuming isLegal(MOVE), make MOVE. Assumes MOVE.isCapture()
      *  is false. */
     void makeMove(Move move) {
-        assert isLegal(move);
         assert !move.isCapture();
-        _moves.add(move);
-        Square s0 = move.getFrom();
+        makeMove(move.code());
+    }
+
+    /** Assuming isLegal(Move.mv(MOVE)), make the move coded MOVE (see
+     *  Move).  The capture fields of MOVE are ignored; the move is
+     *  recorded with the piece it actually captures. */
+    void makeMove(int move) {
+        assert isLegal(Move.mv(move));
+        int k0 = Move.fromIndex(move), k1 = Move.toIndex(move);
+        Square s0 = ALL_SQUARES[k0], s1 = ALL_SQUARES[k1];
         Piece p = get(s0);
-        Square s1 = move.getTo();
-        _replaced.add(get(s1));
-        set(s0, EMP);
-        set(s1, p);
-        _turn = _turn.opposite();
-        _subsetsInitialized = false;
+        Piece captured = get(s1);
+        if (_numMoves == _history.length) {
+            _history = Arrays.copyOf(_history, 2 * _numMoves);
+        }
+        _history[_numMoves] = Move.code(k0, k1, captured);
+        _numMoves += 1;
+        put(s0, EMP);
+        put(s1, p);
+        _blackRegions.save();
+        _whiteRegions.save();
+        regions(p).remove(k0);
+        if (captured != EMP) {
+            regions(captured).remove(k1);
+        }
+        regions(p).add(k1);
+        setTurn(_turn.opposite());
+    }
+
+    /** Pass: give the move to the other side without moving a piece.
+     *  This is not a legal move in the game; it is for the use of
+     *  searches (null-move pruning), which must retract it.  It counts
+     *  toward the move limit, and lastMove() is NO_MOVE after it. */
+    void makeNullMove() {
+        if (_numMoves == _history.length) {
+            _history = Arrays.copyOf(_history, 2 * _numMoves);
+        }
+        _history[_numMoves] = Move.NO_MOVE;
+        _numMoves += 1;
+        setTurn(_turn.opposite());
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
-     *  that move.  Requires that movesMade () > 0. */
+     *  that move.  Requires that movesMade () > 0, and that the move was
+     *  made on this Board or on one it was copied from.  The move may be
+     *  a null move (see makeNullMove). */
     void retract() {
-        assert movesMade() > 0;
-        Move m = _moves.remove(_moves.size() - 1);
-        Piece replaced = _replaced.remove(_replaced.size() - 1);
-        Square s1 = m.getTo();
+        assert _numMoves > 0;
+        _numMoves -= 1;
+        int move = _history[_numMoves];
+        if (move == Move.NO_MOVE) {
+            setTurn(_turn.opposite());
+            return;
+        }
+        Square s0 = ALL_SQUARES[Move.fromIndex(move)],
+            s1 = ALL_SQUARES[Move.toIndex(move)];
         Piece p = get(s1);
-        Square s0 = m.getFrom();
-        set(s1, replaced);
-        set(s0, p);
-        _turn = _turn.opposite();
+        put(s1, Move.captured(move));
+        put(s0, p);
+        if (_numMoves < _setAt) {
+            _blackRegions.discard();
+            _whiteRegions.discard();
+            computeRegions();
+        } else {
+            _blackRegions.restore();
+            _whiteRegions.restore();
+        }
+        setTurn(_turn.opposite());
+    }
+
+    /** Return the code (see Move) of the last move made, including the
+     *  piece it captured, or Move.NO_MOVE if there is none. */
+    int lastMove() {
+        return _numMoves == 0 ? Move.NO_MOVE : _history[_numMoves - 1];
     }
 
     /** Return the Piece representing who is next to move. */
@@ -145,13 +311,38 @@ class Board {
         return _turn;
     }
 
+    /** Make SIDE the side to move, keeping the key up to date. */
+    private void setTurn(Piece side) {
+        if (_turn == WP) {
+            _key ^= WHITE_TO_MOVE_KEY;
+        }
+        _turn = side;
+        if (_turn == WP) {
+            _key ^= WHITE_TO_MOVE_KEY;
+        }
+    }
+
+    /** Return an immutable record of my current position. */
+    BoardSnapshot snapshot() {
+        return new BoardSnapshot(_blackPieces, _whitePieces, _turn,
+                                 movesMade(), _moveLimit, _key);
+    }
+
+    /** Return a 64-bit Zobrist key for this position: the exclusive or of
+     *  a fixed random number for each piece on each square, and another
+     *  for white being on move.  Equal positions have equal keys in every
+     *  run of the program, so keys may be stored and compared later. */
+    long key() {
+        return _key;
+    }
+
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move. */
     boolean isLegal(Square from, Square to) {
         Move m = Move.mv(from, to);
-        Piece p = get(from);
-        return m != null && !blocked(from, to)
-                && p == turn() && m.length() == piecesAlongDir(from, to);
+        return m != null && get(from) == turn()
+            && m.length() == lineCount(from, from.direction(to))
+            && !blocked(from, to);
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -162,70 +353,123 @@ class Board {
 
     /** Return a sequence of all legal moves from this position. */
     List<Move> legalMoves() {
-        List<Move> legals = new ArrayList<>();
-        for (Square s : ALL_SQUARES) {
-            if (get(s) == turn()) {
-                for (Square another : ALL_SQUARES) {
-                    Move m = Move.mv(s, another);
-                    if (m != null && isLegal(m)) {
-                        legals.add(m);
-                    }
+        MoveList moves = new MoveList();
+        legalMoves(moves);
+        List<Move> result = new ArrayList<>(moves.size());
+        for (int k = 0; k < moves.size(); k += 1) {
+            int move = moves.get(k);
+            result.add(Move.mv(ALL_SQUARES[Move.fromIndex(move)],
+                               ALL_SQUARES[Move.toIndex(move)]));
+        }
+        return result;
+    }
+
+    /** Set MOVES to the codes (see Move) of all legal moves from this
+     *  position, with their captures recorded.  Each piece of the side to
+     *  move has at most one candidate destination in each direction, at
+     *  the distance given by lineCount. */
+    void legalMoves(MoveList moves) {
+        moves.clear();
+        Piece opponent = _turn.opposite();
+        long mine = pieces(_turn), opponents = pieces(opponent);
+        for (long m = mine; m != 0; m &= m - 1) {
+            int k0 = first(m);
+            Square from = ALL_SQUARES[k0];
+            for (int dir = 0; dir < 8; dir += 1) {
+                Square to = destination(from, dir, mine, opponents);
+                if (to != null) {
+                    moves.add(Move.code(k0, to.index(),
+                                        contains(opponents, to)
+                                        ? opponent : EMP));
                 }
             }
         }
-        return legals;
+    }
+
+    /** Return true iff the side to move has a legal move. */
+    boolean hasLegalMove() {
+        long mine = pieces(_turn), opponents = pieces(_turn.opposite());
+        for (long m = mine; m != 0; m &= m - 1) {
+            Square from = ALL_SQUARES[first(m)];
+            for (int dir = 0; dir < 8; dir += 1) {
+                if (destination(from, dir, mine, opponents) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return the square to which the piece on FROM may move in direction
+     *  DIR, or null if it has no legal move that way, where MINE are the
+     *  pieces of its side and OPPONENTS the others. */
+    private Square destination(Square from, int dir, long mine,
+                               long opponents) {
+        Square[] ray = from.ray(dir);
+        int dist = _lineCounts[from.line(dir)];
+        if (dist > ray.length) {
+            return null;
+        }
+        Square to = ray[dist - 1];
+        if (contains(mine, to) || (from.between(to) & opponents) != 0) {
+            return null;
+        }
+        return to;
     }
 
     /** Return true iff the game is over (either player has all his
-     *  pieces continguous or there is a tie). */
+     *  pieces continguous, the player to move cannot move, or there is
+     *  a tie). */
     boolean gameOver() {
         return winner() != null;
     }
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        return regions(side).count() == 1;
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
-     *  null.  If the game has ended in a tie, returns EMP. */
+     *  null.  If the game has ended in a tie, returns EMP.  A player who
+     *  has no legal move on his turn (and has not already won or tied)
+     *  loses. */
     Piece winner() {
-        computeRegions();
-        if (!_winnerKnown) {
-            if (piecesContiguous(WP) && !piecesContiguous(BP)) {
-                _winner = WP;
-                _winnerKnown = true;
-            } else if (piecesContiguous(BP) && !piecesContiguous(WP)) {
-                _winner = BP;
-                _winnerKnown = true;
-            } else if (movesMade() >= _moveLimit && !piecesContiguous(BP)
-                    && !piecesContiguous(WP)) {
-                _winner = EMP;
-                _winnerKnown = true;
-            } else if (piecesContiguous(BP) && piecesContiguous(WP)) {
-                _winner = turn().opposite();
-                _winnerKnown = true;
-            }
+        boolean white = piecesContiguous(WP), black = piecesContiguous(BP);
+        if (white && black) {
+            return turn().opposite();
+        } else if (white) {
+            return WP;
+        } else if (black) {
+            return BP;
+        } else if (movesMade() >= _moveLimit) {
+            return EMP;
+        } else if (!hasLegalMove()) {
+            return turn().opposite();
+        } else {
+            return null;
         }
-        return _winner;
     }
 
     /** Return the total number of moves that have been made (and not
      *  retracted).  Each valid call to makeMove with a normal move increases
      *  this number by 1. */
     int movesMade() {
-        return _moves.size();
+        return _movesBefore + _numMoves;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
         Board b = (Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _blackPieces == b._blackPieces
+            && _whitePieces == b._whitePieces && _turn == b._turn;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
     }
 
     @Override
@@ -247,188 +491,77 @@ class Board {
      *  piece or by a friendly piece on the target square. */
     private boolean blocked(Square from, Square to) {
         Piece p0 = get(from);
-        Piece p1 = get(to);
-        if (p0 == p1) {
+        if (p0 == EMP || p0 == get(to)) {
             return true;
         }
-        int direction = from.direction(to);
-        for (int i = 1; i < BOARD_SIZE; i++) {
-            if (from.moveDest(direction, i) != null) {
-                Square s = from.moveDest(direction, i);
-                if (s.equals(to)) {
-                    break;
-                }
-                Piece p = get(s);
-                if (p == p0.opposite()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return (from.between(to) & pieces(p0.opposite())) != 0;
     }
 
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        if (p == EMP) {
-            return 0;
-        }
-        if (get(sq) != p) {
-            return 0;
-        }
-        if (visited[sq.row()][sq.col()]) {
-            return 0;
-        }
-        visited[sq.row()][sq.col()] = true;
-        int count = 1;
-        ArrayList<Square> squares = new ArrayList<>();
-        for (int i = 0; i <= 7; i++) {
-            Square s = sq.moveDest(i, 1);
-            if (s != null) {
-                squares.add(s);
-            }
-        }
-        for (Square s : squares) {
-            count += numContig(s, visited, p);
-        }
-        return count;
+    /** Recompute the regions of both colors from scratch, leaving the
+     *  saved states used by retract alone (retract discards those saved
+     *  before the last set; see _setAt).  The work is deferred until a
+     *  region query needs it, and skipped if the shared summary cache
+     *  already knows the answer (see Connectivity). */
+    private void computeRegions() {
+        _blackRegions.rebuild(_blackPieces);
+        _whiteRegions.rebuild(_whitePieces);
     }
 
-    /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
-    private void computeRegions() {
-        if (_subsetsInitialized) {
-            return;
-        }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] visited = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square s = sq(i, j);
-                Piece p = get(s);
-                if (p == EMP) {
-                    continue;
-                }
-                if (!visited[s.row()][s.col()]) {
-                    int count = numContig(s, visited, p);
-                    if (p == WP) {
-                        _whiteRegionSizes.add(count);
-                    } else {
-                        _blackRegionSizes.add(count);
-                    }
-                }
-            }
-        }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
-        _subsetsInitialized = true;
+    /** Return the connected regions of SIDE's pieces. */
+    private Connectivity regions(Piece side) {
+        return side == WP ? _whiteRegions : _blackRegions;
+    }
+
+    /** Return the evaluation features of SIDE's pieces (BP or WP), which
+     *  are kept up to date as pieces move. */
+    Features features(Piece side) {
+        return side == WP ? _whiteFeatures : _blackFeatures;
     }
 
     /** Return the sizes of all the regions in the current union-find
-     *  structure for side S. */
+     *  structure for side S, largest first. */
     List<Integer> getRegionSizes(Piece s) {
-        computeRegions();
-        if (s == WP) {
-            return _whiteRegionSizes;
-        } else {
-            return _blackRegionSizes;
-        }
+        List<Integer> sizes =
+            s == WP ? _whiteRegionSizes : _blackRegionSizes;
+        regions(s).sizes(sizes);
+        return sizes;
     }
 
-    /** Return the number of pieces along the direction from FROM to TO. */
-    private int piecesAlongDir(Square from, Square to) {
-        int c = from.col();
-        int r = from.row();
-        int direction = from.direction(to);
-        if (direction == 0 || direction == 4) {
-            return colCount(c);
-        } else if (direction == 2 || direction == 6) {
-            return rowCount(r);
-        } else if (direction == 1 || direction == 5) {
-            return positiveDiaCount(c, r);
-        } else if (direction == 3 || direction == 7) {
-            return negativeDiaCount(c, r);
-        } else {
-            return 0;
-        }
+    /** Return the number of connected regions of SIDE's pieces. */
+    int regionCount(Piece side) {
+        return regions(side).count();
     }
 
-    /** Return the number of pieces along the NW SE diagonal of
-     * the Square with column number C and row number R. */
-    private int negativeDiaCount(int c, int r) {
-        int result = 0;
-        int tmpc = c;
-        int tmpr = r;
-        for (; c >= 0 && r < BOARD_SIZE; c--, r++) {
-            Square s1 = sq(c, r);
-            if (_board[s1.index()] != EMP) {
-                result++;
-            }
-        }
-        if (tmpc >= 0 && tmpr >= 0) {
-            tmpc++;
-            tmpr--;
-        }
-        for (; tmpc < BOARD_SIZE && tmpr >= 0; tmpc++, tmpr--) {
-            Square s2 = sq(tmpc, tmpr);
-            if (_board[s2.index()] != EMP) {
-                result++;
-            }
-        }
-        return result;
+    /** Return the number of pieces in the largest connected region of
+     *  SIDE's pieces. */
+    int largestRegion(Piece side) {
+        return regions(side).largest();
     }
 
-    /** Return the number of pieces along the NE SW diagonal of
-     * the Square with column number C and row number R. */
-    private int positiveDiaCount(int c, int r) {
-        int result = 0;
-        int tmpc = c;
-        int tmpr = r;
-        for (; c < BOARD_SIZE && r < BOARD_SIZE; c++, r++) {
-            Square s1 = sq(c, r);
-            if (_board[s1.index()] != EMP) {
-                result++;
-            }
-        }
-        if (tmpc >= 0 && tmpr >= 0) {
-            tmpc--;
-            tmpr--;
-        }
-        for (; tmpc >= 0 && tmpr >= 0; tmpc--, tmpr--) {
-            Square s2 = sq(tmpc, tmpr);
-            if (_board[s2.index()] != EMP) {
-                result++;
-            }
-        }
-        return result;
+    /** Return the number of pieces on the line through SQ in direction
+     *  DIR (which is the same line as for direction DIR + 4). */
+    int lineCount(Square sq, int dir) {
+        return _lineCounts[sq.line(dir)];
     }
 
-    /** Return the number of pieces along the vertical line of
-     * the Square with column number C. */
-    private int colCount(int c) {
-        int result = 0;
-        for (int r = 0; r < BOARD_SIZE; r++) {
-            Square s = sq(c, r);
-            if (_board[s.index()] != EMP) {
-                result++;
-            }
-        }
-        return result;
-    }
+    /** Seed for the Zobrist keys.  Fixed so that keys are the same in
+     *  every run. */
+    private static final long KEY_SEED = 0x4c6f41L;
 
-    /** Return the number of pieces along the horizontal line of
-     * the Square with row number R. */
-    private int rowCount(int r) {
-        int result = 0;
-        for (int c = 0; c < BOARD_SIZE; c++) {
-            Square s = sq(c, r);
-            if (_board[s.index()] != EMP) {
-                result++;
+    /** Zobrist keys for a piece of each color (by ordinal) on each
+     *  square (by index). */
+    private static final long[][] PIECE_KEYS = new long[2][NUM_SQUARES];
+    /** Zobrist key included iff white is to move. */
+    private static final long WHITE_TO_MOVE_KEY;
+
+    static {
+        Random keys = new Random(KEY_SEED);
+        for (long[] pieceKeys : PIECE_KEYS) {
+            for (int k = 0; k < NUM_SQUARES; k += 1) {
+                pieceKeys[k] = keys.nextLong();
             }
         }
-        return result;
+        WHITE_TO_MOVE_KEY = keys.nextLong();
     }
 
     /** The standard initial configuration for Lines of Action (bottom row
@@ -443,32 +576,51 @@ class Board {
         { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
         { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
-    /** Current contents of the board.  Square S is at _board[S.index()]. */
-    private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
-
-    /** List of all unretracted moves on this board, in order. */
-    private final ArrayList<Move> _moves = new ArrayList<>();
+    /** Current contents of the board: the squares holding black and
+     *  white pieces, respectively. */
+    private long _blackPieces, _whitePieces;
+
+    /** Numbers of pieces on each line, indexed by line number (see
+     *  Square.line). */
+    private final int[] _lineCounts = new int[NUM_LINES];
+
+    /** Codes (see Move) of all unretracted moves on this board, in order,
+     *  recording the pieces they captured, in _history[0 .. _numMoves-1]. */
+    private int[] _history = new int[2 * DEFAULT_MOVE_LIMIT];
+    /** Number of unretracted moves in _history. */
+    private int _numMoves;
+    /** The number of moves in _history when set was last called.  The
+     *  regions saved by those moves describe the pieces before the set,
+     *  so retracting one of them recomputes the regions instead of
+     *  restoring them. */
+    private int _setAt;
+    /** Number of moves made before the first one in _history (nonzero
+     *  only for Boards made from BoardSnapshots). */
+    private int _movesBefore;
     /** Current side on move. */
     private Piece _turn;
+    /** The Zobrist key of the current position (see key()). */
+    private long _key;
     /** Limit on number of moves before tie is declared.  */
     private int _moveLimit;
-    /** True iff the value of _winner is known to be valid. */
-    private boolean _winnerKnown;
-    /** Cached value of the winner (BP, WP, EMP (for tie), or null (game still
-     *  in progress).  Use only if _winnerKnown. */
-    private Piece _winner;
 
-    /** True iff subsets computation is up-to-date. */
-    private boolean _subsetsInitialized;
+    /** The connected regions of each color, with the saved states that
+     *  retract restores. */
+    private final Connectivity
+        _blackRegions = new Connectivity(),
+        _whiteRegions = new Connectivity();
+
+    /** The evaluation features of each color. */
+    private final Features
+        _blackFeatures = new Features(),
+        _whiteFeatures = new Features();
 
-    /** List of the sizes of continguous clusters of pieces, by color. */
+    /** List of the sizes of continguous clusters of pieces, by color,
+     *  as last returned by getRegionSizes. */
     private final ArrayList<Integer>
         _whiteRegionSizes = new ArrayList<>(),
         _blackRegionSizes = new ArrayList<>();
 
-    /** List of the replaced pieces that helps to track for RETRACT. */
-    private ArrayList<Piece> _replaced = new ArrayList<>();
-
 
 }
 
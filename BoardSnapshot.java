@@ -0,0 +1,123 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Formatter;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** An immutable record of a Board's position: where the pieces are, who
+ *  is to move, how many moves have been made, and the move limit.  It does
+ *  not include the move history.  Since all its fields are final, a
+ *  BoardSnapshot may be handed from one thread to another without
+ *  synchronization, and any number of threads may read it at once.
+ *  @author Hankai Xing
+ */
+final class BoardSnapshot {
+
+    /** A snapshot in which BLACKPIECES and WHITEPIECES are the squares
+     *  (as bitboards) holding black and white pieces, TURN is to move,
+     *  MOVESMADE moves have been made, the move limit (in moves by both
+     *  sides) is MOVELIMIT, and the Zobrist key is KEY. */
+    BoardSnapshot(long blackPieces, long whitePieces, Piece turn,
+                  int movesMade, int moveLimit, long key) {
+        assert (blackPieces & whitePieces) == 0;
+        _blackPieces = blackPieces;
+        _whitePieces = whitePieces;
+        _turn = turn;
+        _movesMade = movesMade;
+        _moveLimit = moveLimit;
+        _key = key;
+    }
+
+    /** Return a new Board in my position.  It has no move history, so
+     *  nothing may be retracted from it, but its movesMade() is mine. */
+    Board toBoard() {
+        return new Board(this);
+    }
+
+    /** Return the contents of the square at SQ. */
+    Piece get(Square sq) {
+        if (Bitboards.contains(_blackPieces, sq)) {
+            return BP;
+        } else if (Bitboards.contains(_whitePieces, sq)) {
+            return WP;
+        } else {
+            return EMP;
+        }
+    }
+
+    /** Return the set of squares containing P, as a bitboard, as for
+     *  Board.pieces. */
+    long pieces(Piece p) {
+        switch (p) {
+        case BP:
+            return _blackPieces;
+        case WP:
+            return _whitePieces;
+        default:
+            return ~(_blackPieces | _whitePieces);
+        }
+    }
+
+    /** Return the side to move. */
+    Piece turn() {
+        return _turn;
+    }
+
+    /** Return the number of moves made. */
+    int movesMade() {
+        return _movesMade;
+    }
+
+    /** Return the limit on the number of moves by both sides. */
+    int moveLimit() {
+        return _moveLimit;
+    }
+
+    /** Return the Zobrist key, as for Board.key. */
+    long key() {
+        return _key;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BoardSnapshot)) {
+            return false;
+        }
+        BoardSnapshot s = (BoardSnapshot) obj;
+        return _blackPieces == s._blackPieces
+            && _whitePieces == s._whitePieces && _turn == s._turn;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(_key);
+    }
+
+    @Override
+    public String toString() {
+        Formatter out = new Formatter();
+        out.format("===%n");
+        for (int r = BOARD_SIZE - 1; r >= 0; r -= 1) {
+            out.format("    ");
+            for (int c = 0; c < BOARD_SIZE; c += 1) {
+                out.format("%s ", get(sq(c, r)).abbrev());
+            }
+            out.format("%n");
+        }
+        out.format("Next move: %s%n===", turn().fullName());
+        return out.toString();
+    }
+
+    /** The squares holding black and white pieces. */
+    private final long _blackPieces, _whitePieces;
+    /** The side to move. */
+    private final Piece _turn;
+    /** Moves made so far, and the limit on moves by both sides. */
+    private final int _movesMade, _moveLimit;
+    /** Zobrist key. */
+    private final long _key;
+
+}
@@ -2,6 +2,10 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -125,4 +129,406 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+    @Test
+    public void testPieceMasks() {
+        Board b = new Board();
+        assertEquals("initial black pieces", 12,
+                     Long.bitCount(b.pieces(BP)));
+        assertEquals("initial white pieces", 12,
+                     Long.bitCount(b.pieces(WP)));
+        assertEquals("disjoint colors", 0, b.pieces(BP) & b.pieces(WP));
+        assertEquals("empty squares", ~b.occupied(), b.pieces(EMP));
+        assertTrue("b1 is black",
+                   Bitboards.contains(b.pieces(BP), sq("b1")));
+        b.makeMove(mv("b1-b3"));
+        assertFalse("b1 vacated", Bitboards.contains(b.occupied(), sq("b1")));
+        assertTrue("b3 is black",
+                   Bitboards.contains(b.pieces(BP), sq("b3")));
+        assertEquals("black regions after b1-b3",
+                     3, b.getRegionSizes(BP).size());
+    }
+
+    /** Check that B's line counts agree with its bitboards. */
+    private static void checkLineCounts(Board b) {
+        for (Square s : Square.ALL_SQUARES) {
+            for (int dir = 0; dir < 4; dir += 1) {
+                assertEquals("count of line " + dir + " at " + s,
+                             Long.bitCount(b.occupied()
+                                           & Square.lineMask(s.line(dir))),
+                             b.lineCount(s, dir));
+            }
+        }
+    }
+
+    @Test
+    public void testLineCounts() {
+        Board b = new Board(BOARD1, BP);
+        checkLineCounts(b);
+        b.makeMove(mv("f3-d5"));
+        checkLineCounts(b);
+        b.makeMove(mv("a2-c2"));
+        checkLineCounts(b);
+        b.retract();
+        b.retract();
+        checkLineCounts(b);
+        b.set(sq("d4"), WP);
+        checkLineCounts(b);
+        b.set(sq("b1"), EMP);
+        checkLineCounts(b);
+    }
+
+    /** Return the number of legal moves in B, found by trying every pair
+     *  of squares. */
+    private static int countLegalMovesSlowly(Board b) {
+        int n = 0;
+        for (Square from : Square.ALL_SQUARES) {
+            for (Square to : Square.ALL_SQUARES) {
+                Move m = mv(from, to);
+                if (m != null && b.isLegal(m)) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void testLegalMoves() {
+        Piece[][][] positions = { BOARD1, BOARD2, BOARD3,
+                                  Board.INITIAL_PIECES };
+        for (Piece[][] position : positions) {
+            for (Piece side : new Piece[] { BP, WP }) {
+                Board b = new Board(position, side);
+                List<Move> moves = b.legalMoves();
+                assertEquals("number of legal moves",
+                             countLegalMovesSlowly(b), moves.size());
+                for (Move m : moves) {
+                    assertTrue("generated move " + m + " is legal",
+                               b.isLegal(m));
+                }
+            }
+        }
+    }
+
+    /** Return the number of distinct connected regions in PIECES, found
+     *  by flood fill. */
+    private static int regionCount(long pieces) {
+        int count;
+        for (count = 0; pieces != 0; count += 1) {
+            pieces &= ~Bitboards.region(pieces & -pieces, pieces);
+        }
+        return count;
+    }
+
+    /** Check that B's region counts, which may come from the shared
+     *  RegionCache, agree with a fresh computation from its bitboards. */
+    private static void checkRegions(Board b) {
+        for (Piece side : new Piece[] { BP, WP }) {
+            Connectivity fresh = new Connectivity();
+            fresh.initialize(b.pieces(side));
+            List<Integer> sizes = new ArrayList<>();
+            fresh.sizes(sizes);
+            assertEquals("regions of " + side,
+                         regionCount(b.pieces(side)),
+                         b.regionCount(side));
+            assertEquals("cached regions of " + side, sizes.size(),
+                         b.regionCount(side));
+            assertEquals("largest region of " + side,
+                         sizes.isEmpty() ? 0 : sizes.get(0),
+                         b.largestRegion(side));
+            assertEquals("region sizes of " + side,
+                         Long.bitCount(b.pieces(side)),
+                         b.getRegionSizes(side).stream()
+                         .mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    @Test
+    public void testIncrementalRegions() {
+        Board b = new Board(BOARD1, BP);
+        Random random = new Random(61);
+        int made;
+        for (made = 0; made < 40 && !b.gameOver(); made += 1) {
+            List<Move> moves = b.legalMoves();
+            b.makeMove(moves.get(random.nextInt(moves.size())));
+            checkRegions(b);
+        }
+        for (; made > 0; made -= 1) {
+            b.retract();
+            checkRegions(b);
+        }
+        assertEquals("regions restored", new Board(BOARD1, BP), b);
+        assertEquals("black regions restored", 7, b.regionCount(BP));
+        assertEquals("largest white region", 5, b.largestRegion(WP));
+    }
+
+    /** Squares at which Square's tables are spot-checked: the corners,
+     *  squares on each edge, and interior squares. */
+    static final String[] SPOT_SQUARES = {
+        "a1", "h1", "a8", "h8", "a4", "e1", "h5", "d8", "b2", "d4", "g6"
+    };
+
+    /** Changes in column and row for one step in each direction, in the
+     *  order used by Square.moveDest. */
+    static final int[][] STEPS = {
+        { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 },
+        { -1, -1 }, { -1, 0 }, { -1, 1 }
+    };
+
+    @Test
+    public void testSquareTables() {
+        for (String name : SPOT_SQUARES) {
+            Square from = sq(name);
+            for (int dir = 0; dir < STEPS.length; dir += 1) {
+                Square[] ray = from.ray(dir);
+                long mask = 0;
+                int n = 0;
+                for (int c = from.col() + STEPS[dir][0],
+                         r = from.row() + STEPS[dir][1];
+                     Square.exists(c, r);
+                     c += STEPS[dir][0], r += STEPS[dir][1], n += 1) {
+                    Square to = sq(c, r);
+                    String move = from + "-" + to;
+                    assertTrue("ray " + move, n < ray.length);
+                    assertEquals("ray " + move, to, ray[n]);
+                    assertEquals("destination " + move, to,
+                                 from.moveDest(dir, n + 1));
+                    assertEquals("direction " + move, dir,
+                                 from.direction(to));
+                    assertEquals("between " + move, mask,
+                                 from.between(to));
+                    mask |= Bitboards.bit(to);
+                }
+                assertEquals("length of ray " + dir + " from " + from, n,
+                             ray.length);
+                assertNull("off the board", from.moveDest(dir, n + 1));
+                int opposite = (dir + STEPS.length / 2) % STEPS.length;
+                assertEquals("same line both ways", from.line(dir),
+                             from.line(opposite));
+                for (Square to : from.ray(opposite)) {
+                    mask |= Bitboards.bit(to);
+                }
+                assertEquals("line " + dir + " through " + from,
+                             mask | Bitboards.bit(from),
+                             Square.lineMask(from.line(dir)));
+            }
+        }
+        assertEquals("nothing between unaligned squares", 0,
+                     sq("a1").between(sq("b3")));
+        assertEquals("nothing between neighbors", 0,
+                     sq("h8").between(sq("g7")));
+    }
+
+    @Test
+    public void testRegionCache() {
+        RegionCache cache = new RegionCache(4);
+        long pieces = 0x0000_0018_1800_0000L;
+        assertEquals("empty table misses", RegionCache.MISS,
+                     cache.probe(pieces));
+        assertEquals("empty table misses the empty set", RegionCache.MISS,
+                     cache.probe(0));
+        cache.store(pieces, 3, 5);
+        long summary = cache.probe(pieces);
+        assertNotEquals("stored entry hits", RegionCache.MISS, summary);
+        assertEquals("stored count", 3, RegionCache.count(summary));
+        assertEquals("stored largest", 5, RegionCache.largest(summary));
+        assertEquals("other key misses", RegionCache.MISS,
+                     cache.probe(pieces + 1));
+        long other;
+        for (other = 1; cache.probe(pieces) != RegionCache.MISS;
+             other += 1) {
+            cache.store(other, 1, 1);
+        }
+        other -= 1;
+        assertEquals("colliding entry replaces the old", 1,
+                     RegionCache.count(cache.probe(other)));
+        assertEquals("replaced key misses rather than reading the new"
+                     + " entry", RegionCache.MISS, cache.probe(pieces));
+    }
+
+    /** Check that B's features agree with those of a board built from
+     *  scratch in the same position. */
+    private static void checkFeatures(Board b) {
+        Board fresh = new Board(b.snapshot());
+        assertEquals("black features", fresh.features(BP), b.features(BP));
+        assertEquals("white features", fresh.features(WP), b.features(WP));
+    }
+
+    @Test
+    public void testFeatures() {
+        Board b = new Board();
+        assertEquals("initial black pieces", 12, b.features(BP).count());
+        assertEquals("initial black Euler number", 2,
+                     b.features(BP).eulerNumber());
+        assertEquals("initial white Euler number", 2,
+                     b.features(WP).eulerNumber());
+        assertEquals("initial black centrality", 0,
+                     b.features(BP).centrality());
+        b = new Board(BOARD1, BP);
+        assertEquals("Euler number counts regions without holes",
+                     b.regionCount(BP), b.features(BP).eulerNumber());
+        Random random = new Random(62);
+        int made;
+        for (made = 0; made < 40 && !b.gameOver(); made += 1) {
+            List<Move> moves = b.legalMoves();
+            b.makeMove(moves.get(random.nextInt(moves.size())));
+            checkFeatures(b);
+        }
+        for (; made > 0; made -= 1) {
+            b.retract();
+        }
+        checkFeatures(b);
+        assertEquals("features restored",
+                     new Board(BOARD1, BP).features(WP), b.features(WP));
+    }
+
+    @Test
+    public void testCaptureRetract() {
+        Board b = new Board(BOARD2, WP);
+        int blackPieces = Long.bitCount(b.pieces(BP));
+        b.makeMove(mv("b7-b4"));
+        assertEquals("b4 captured", WP, b.get(sq("b4")));
+        assertEquals("black count after capture", blackPieces - 1,
+                     Long.bitCount(b.pieces(BP)));
+        checkRegions(b);
+        b.retract();
+        assertEquals("black restored after capture", BP, b.get(sq("b4")));
+        assertTrue("black contiguous again", b.piecesContiguous(BP));
+        checkRegions(b);
+    }
+
+    @Test
+    public void testSetRetract() {
+        Board b = new Board();
+        b.makeMove(mv("b1-b3"));
+        b.makeMove(mv("a2-c2"));
+        b.set(sq("c1"), EMP);
+        b.retract();
+        checkRegions(b);
+        b.retract();
+        checkRegions(b);
+        assertEquals("black regions after set and retract", 3,
+                     b.regionCount(BP));
+        assertEquals("black region sizes", 11,
+                     b.getRegionSizes(BP).stream()
+                     .mapToInt(Integer::intValue).sum());
+        b.makeMove(mv("b1-b3"));
+        b.retract();
+        assertEquals("moves after set retract exactly", 3,
+                     b.regionCount(BP));
+    }
+
+    @Test
+    public void testKeys() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        assertEquals("equal boards have equal keys", b0.key(), b1.key());
+        assertNotEquals("side to move changes key",
+                        b0.key(), new Board(BOARD1, WP).key());
+        b1.makeMove(mv("f3-d5"));
+        assertNotEquals("move changes key", b0.key(), b1.key());
+        b1.makeMove(mv("a2-c2"));
+        b1.retract();
+        b1.retract();
+        assertEquals("key restored by retract", b0.key(), b1.key());
+        b1.set(sq("d4"), WP);
+        b1.set(sq("d4"), EMP);
+        assertEquals("key restored by set", b0.key(), b1.key());
+        Board b2 = new Board();
+        b2.copyFrom(b0);
+        assertEquals("key copied", b0.key(), b2.key());
+        assertEquals("hash code follows key", b0.hashCode(), b2.hashCode());
+        Board b3 = new Board(BOARD1, WP);
+        b3.initialize(BOARD1, BP);
+        assertEquals("key after reinitializing", b0.key(), b3.key());
+    }
+
+    @Test
+    public void testMoveCodes() {
+        Board b = new Board(BOARD2, WP);
+        MoveList moves = new MoveList();
+        b.legalMoves(moves);
+        assertEquals("same moves as legalMoves()",
+                     b.legalMoves().size(), moves.size());
+        int code = Move.code(sq("b7").index(), sq("b4").index(), BP);
+        int capture = Move.NO_MOVE;
+        for (int k = 0; k < moves.size(); k += 1) {
+            if (moves.get(k) == code) {
+                capture = moves.get(k);
+            }
+        }
+        assertEquals("b7-b4 generated", code, capture);
+        assertTrue("b7-b4 is a capture", Move.isCapture(capture));
+        assertEquals("b7-b4 captures black", BP, Move.captured(capture));
+        assertEquals("decoded move", mv("b7-b4").captureMove(),
+                     Move.mv(capture));
+        b.makeMove(capture);
+        assertEquals("last move recorded", capture, b.lastMove());
+        b.retract();
+        assertEquals("restored", new Board(BOARD2, WP), b);
+
+        for (int k = 0; k < moves.size(); k += 1) {
+            moves.setScore(k, Move.isCapture(moves.get(k)) ? 1 : 0);
+        }
+        moves.sortByScore();
+        assertTrue("captures sorted first", Move.isCapture(moves.get(0)));
+        assertFalse("non-captures sorted last",
+                    Move.isCapture(moves.get(moves.size() - 1)));
+    }
+
+    @Test
+    public void testCopyKeepsHistory() {
+        Board b0 = new Board(BOARD2, WP);
+        Board b1 = new Board(b0);
+        b1.makeMove(mv("b7-b4"));
+        Board b2 = new Board(b1);
+        assertEquals("copy has same move count", 1, b2.movesMade());
+        assertEquals("copy equals original", b1, b2);
+        b2.retract();
+        assertEquals("retract on copy restores capture", b0, b2);
+        assertTrue("retract on copy restores regions",
+                   b2.piecesContiguous(BP));
+        assertEquals("original unaffected", 1, b1.movesMade());
+    }
+
+    @Test
+    public void testNullMove() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(b0);
+        b1.makeNullMove();
+        assertEquals("null move passes the turn", WP, b1.turn());
+        assertEquals("null move keeps pieces", b0.pieces(BP), b1.pieces(BP));
+        assertEquals("key matches the new turn",
+                     new Board(BOARD1, WP).key(), b1.key());
+        assertEquals("no last move", Move.NO_MOVE, b1.lastMove());
+        b1.makeMove(mv("a2-c2"));
+        b1.retract();
+        b1.retract();
+        assertEquals("null move retracted", b0, b1);
+        assertEquals("key restored", b0.key(), b1.key());
+    }
+
+    @Test
+    public void testSnapshot() {
+        Board b0 = new Board(BOARD1, BP);
+        b0.makeMove(mv("f3-d5"));
+        BoardSnapshot snap = b0.snapshot();
+        b0.makeMove(mv("a2-c2"));
+        assertEquals("snapshot unaffected by later moves", BP,
+                     snap.get(sq("d5")));
+        assertEquals("snapshot side to move", WP, snap.turn());
+        Board b1 = snap.toBoard();
+        b0.retract();
+        assertEquals("rebuilt board equals original", b0, b1);
+        assertEquals("rebuilt board key", b0.key(), b1.key());
+        assertEquals("rebuilt board move count", 1, b1.movesMade());
+        assertEquals("rebuilt board regions",
+                     b0.regionCount(WP), b1.regionCount(WP));
+        assertEquals("rebuilt board legal moves",
+                     b0.legalMoves(), b1.legalMoves());
+        b1.makeMove(mv("a2-c2"));
+        b1.retract();
+        assertEquals("rebuilt board retracts its own moves", b0, b1);
+    }
+
 }
@@ -97,7 +97,7 @@ class BoardWidget extends Pad {
 
     /** Draw the contents of S on G. */
     private void drawPiece(Graphics2D g, Square s) {
-        Piece p = _board.get(s);
+        Piece p = _position.get(s);
         switch (p) {
         case EMP:
             return;
@@ -151,7 +151,7 @@ class BoardWidget extends Pad {
 
     /** Revise the displayed board according to BOARD. */
     synchronized void update(Board board) {
-        _board.copyFrom(board);
+        _position = board.snapshot();
         repaint();
     }
 
@@ -189,8 +189,8 @@ class BoardWidget extends Pad {
 
     /** Queue on which to post move commands (from mouse clicks). */
     private ArrayBlockingQueue<String> _commands;
-    /** Board being displayed. */
-    private final Board _board = new Board();
+    /** Position being displayed. */
+    private BoardSnapshot _position = new Board().snapshot();
 
     /** True iff accepting moves from user. */
     private boolean _acceptingMoves;
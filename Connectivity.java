@@ -0,0 +1,216 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static loa.Bitboards.*;
+import static loa.Square.NUM_SQUARES;
+
+/** The partition of the pieces of one color into connected regions,
+ *  maintained incrementally as pieces are added and removed.  Each region
+ *  is a bitboard.  Adding a piece unions it with every region it touches.
+ *  Removing one sets aside the rest of its region as unresolved: a union
+ *  of whole regions whose partition is found only when asked for, and
+ *  then only if the shared RegionCache does not already know the summary
+ *  for the current set of pieces.  The whole state may be saved on a
+ *  stack and restored, so that a Board can undo a move exactly.
+ *  @author Hankai Xing
+ */
+final class Connectivity {
+
+    /** Log (base 2) of the number of entries in the shared cache of region
+     *  summaries. */
+    static final int SUMMARY_CACHE_BITS = 16;
+
+    /** Set me to the regions of PIECES, discarding any saved states. */
+    void initialize(long pieces) {
+        _top = 0;
+        rebuild(pieces);
+    }
+
+    /** Set my current state to the regions of PIECES, leaving saved states
+     *  alone.  Those describe the pieces before the change that made a
+     *  rebuild necessary, so the caller must discard rather than restore
+     *  them (see discard). */
+    void rebuild(long pieces) {
+        _count = 0;
+        _pieces = _unresolved = pieces;
+    }
+
+    /** Set my current and saved states to copies of those of OTHER. */
+    void copyFrom(Connectivity other) {
+        _count = other._count;
+        _pieces = other._pieces;
+        _unresolved = other._unresolved;
+        System.arraycopy(other._regions, 0, _regions, 0, _count);
+        if (_history.length < other._top) {
+            _history = new long[other._history.length];
+        }
+        _top = other._top;
+        System.arraycopy(other._history, 0, _history, 0, _top);
+    }
+
+    /** Add a piece on the square with index K, which must not already
+     *  hold one of my pieces. */
+    void add(int k) {
+        long merged = bit(k), touching = merged | NEIGHBORS[k];
+        int n = 0;
+        for (int i = 0; i < _count; i += 1) {
+            if ((_regions[i] & touching) != 0) {
+                merged |= _regions[i];
+            } else {
+                _regions[n] = _regions[i];
+                n += 1;
+            }
+        }
+        _count = n;
+        _pieces |= bit(k);
+        if ((_unresolved & touching) != 0) {
+            _unresolved |= merged;
+        } else {
+            _regions[_count] = merged;
+            _count += 1;
+        }
+    }
+
+    /** Remove my piece from the square with index K. */
+    void remove(int k) {
+        long b = bit(k);
+        _pieces &= ~b;
+        if ((_unresolved & b) != 0) {
+            _unresolved &= ~b;
+            return;
+        }
+        for (int i = 0; i < _count; i += 1) {
+            if ((_regions[i] & b) != 0) {
+                _unresolved |= _regions[i] & ~b;
+                _count -= 1;
+                _regions[i] = _regions[_count];
+                return;
+            }
+        }
+        assert false : "no piece to remove";
+    }
+
+    /** Push my current state on my stack of saved states. */
+    void save() {
+        if (_history.length < _top + _count + SAVED_FIELDS) {
+            _history = Arrays.copyOf(_history, 2 * (_history.length
+                                                    + _count + SAVED_FIELDS));
+        }
+        System.arraycopy(_regions, 0, _history, _top, _count);
+        _top += _count;
+        _history[_top] = _pieces;
+        _history[_top + 1] = _unresolved;
+        _history[_top + 2] = _count;
+        _top += SAVED_FIELDS;
+    }
+
+    /** Pop my most recently saved state and make it current. */
+    void restore() {
+        assert _top > 0;
+        _top -= SAVED_FIELDS;
+        _pieces = _history[_top];
+        _unresolved = _history[_top + 1];
+        _count = (int) _history[_top + 2];
+        _top -= _count;
+        System.arraycopy(_history, _top, _regions, 0, _count);
+    }
+
+    /** Pop my most recently saved state without making it current. */
+    void discard() {
+        assert _top > 0;
+        _top -= SAVED_FIELDS;
+        _top -= (int) _history[_top + 2];
+    }
+
+    /** Return the number of regions. */
+    int count() {
+        if (_unresolved != 0) {
+            long summary = SUMMARIES.probe(_pieces);
+            if (summary != RegionCache.MISS) {
+                return RegionCache.count(summary);
+            }
+            resolve();
+        }
+        return _count;
+    }
+
+    /** Return the number of pieces in my largest region (0 if I have no
+     *  pieces). */
+    int largest() {
+        if (_unresolved != 0) {
+            long summary = SUMMARIES.probe(_pieces);
+            if (summary != RegionCache.MISS) {
+                return RegionCache.largest(summary);
+            }
+            resolve();
+        }
+        return computeLargest();
+    }
+
+    /** Set SIZES to the sizes of my regions, largest first. */
+    void sizes(List<Integer> sizes) {
+        resolve();
+        sizes.clear();
+        for (int i = 0; i < _count; i += 1) {
+            sizes.add(size(_regions[i]));
+        }
+        Collections.sort(sizes, Collections.reverseOrder());
+    }
+
+    /** Partition my unresolved pieces into regions, and record the
+     *  resulting summary in the shared cache. */
+    private void resolve() {
+        if (_unresolved == 0) {
+            return;
+        }
+        long pieces = _unresolved;
+        while (pieces != 0) {
+            long region = region(pieces & -pieces, pieces);
+            _regions[_count] = region;
+            _count += 1;
+            pieces &= ~region;
+        }
+        _unresolved = 0;
+        SUMMARIES.store(_pieces, _count, computeLargest());
+    }
+
+    /** Return the size of my largest region, assuming all are resolved. */
+    private int computeLargest() {
+        int result = 0;
+        for (int i = 0; i < _count; i += 1) {
+            result = Math.max(result, size(_regions[i]));
+        }
+        return result;
+    }
+
+    /** Region summaries shared by all Connectivity objects in all
+     *  threads. */
+    private static final RegionCache SUMMARIES =
+        new RegionCache(SUMMARY_CACHE_BITS);
+
+    /** Number of fields other than regions in a saved state. */
+    private static final int SAVED_FIELDS = 3;
+
+    /** The resolved regions are _regions[0 .. _count-1]. */
+    private final long[] _regions = new long[NUM_SQUARES];
+    /** Number of resolved regions. */
+    private int _count;
+    /** All my pieces. */
+    private long _pieces;
+    /** Those of my pieces not in a resolved region.  These form whole
+     *  regions, but their partition is not yet known. */
+    private long _unresolved;
+
+    /** Stack of saved states.  Each consists of the resolved regions
+     *  followed by _pieces, _unresolved, and the number of resolved
+     *  regions.  The stack occupies _history[0 .. _top-1]. */
+    private long[] _history = new long[NUM_SQUARES];
+    /** Size of the saved-state stack. */
+    private int _top;
+
+}
@@ -0,0 +1,211 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** A game-tree search for the best move in a position, run by one or more
+ *  threads as directed by an EngineOptions.
+ *
+ *  With more than one thread, the search is "lazy SMP": each thread runs
+ *  its own Searcher over the same position, and they cooperate only
+ *  through a shared transposition table, so that each finds many
+ *  positions already searched by the others.  Half the helper threads
+ *  start one ply deeper than the main thread to spread their work.  The
+ *  move played is always the main thread's; with one thread, the search
+ *  is deterministic.
+ *  @author Hankai Xing
+ */
+final class Engine {
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** An engine controlled by OPTIONS. */
+    Engine(EngineOptions options) {
+        _options = options;
+        _table = new TranspositionTable(options.tableSize());
+        _searchers = new Searcher[options.threads()];
+        for (int i = 0; i < _searchers.length; i += 1) {
+            _searchers[i] = new Searcher(this, i);
+        }
+    }
+
+    /** Return the best move (as a move code) for the player to move in
+     *  POSITION, in which the game must not be over, or Move.NO_MOVE if
+     *  that player has no legal move.  POSITION is not modified, and
+     *  must not be modified by others during the search. */
+    int search(Board position) {
+        start();
+        return think(position);
+    }
+
+    /** Begin a new search: start its clock, and clear any request to
+     *  stop.  Must be followed by think.  Requests to stop made after
+     *  start returns are not lost, even if think has not yet begun. */
+    void start() {
+        start(0);
+    }
+
+    /** Begin a new search, as for start(), for a move on which SPENT
+     *  nanoseconds of its time limit have already been used (as by
+     *  pondering), so that only the rest remains. */
+    void start(long spent) {
+        _start = System.nanoTime();
+        _budget = _options.timeLimit() * NANOS_PER_MILLI - spent;
+        _stopped = false;
+    }
+
+    /** Begin a search to be ended only by stop or by reaching the
+     *  maximum depth, as when pondering on the opponent's time.  Must be
+     *  followed by think. */
+    void startPondering() {
+        _start = System.nanoTime();
+        _budget = Long.MAX_VALUE;
+        _stopped = false;
+    }
+
+    /** Perform the search begun by start or startPondering, as for
+     *  search(POSITION). */
+    int think(Board position) {
+        _table.newSearch();
+        Thread[] helpers = new Thread[_searchers.length - 1];
+        for (int i = 0; i < helpers.length; i += 1) {
+            Searcher helper = _searchers[i + 1];
+            int firstDepth = 1 + (i + 1) % 2;
+            helpers[i] = new Thread(() -> helper.run(position, firstDepth));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+        _searchers[0].run(position, 1);
+        stop();
+        for (Thread helper : helpers) {
+            boolean interrupted = false;
+            while (helper.isAlive()) {
+                try {
+                    helper.join();
+                } catch (InterruptedException excp) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return _searchers[0].bestMove();
+    }
+
+    /** Forget the results of all earlier searches, as at the start of a
+     *  new game.  Must not be called during a search. */
+    void clear() {
+        _table.clear();
+    }
+
+    /** Stop the current search as soon as possible.  May be called from
+     *  any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return true iff the current search has been stopped. */
+    boolean stopped() {
+        return _stopped;
+    }
+
+    /** Return true iff the current search should stop, stopping it first
+     *  if its time has run out. */
+    boolean checkTime() {
+        if (!_stopped && System.nanoTime() - _start > _budget) {
+            _stopped = true;
+        }
+        return _stopped;
+    }
+
+    /** Return the number of nanoseconds since the current (or last)
+     *  search began. */
+    long elapsed() {
+        return System.nanoTime() - _start;
+    }
+
+    /** Return the time allowed for each move, in nanoseconds. */
+    long budget() {
+        return _options.timeLimit() * NANOS_PER_MILLI;
+    }
+
+    /** Return true iff more than half of the current search's time has
+     *  been used, so that another iteration is unlikely to finish. */
+    boolean pastSoftLimit() {
+        return System.nanoTime() - _start > _budget / 2;
+    }
+
+    /** Return the number of positions visited by all threads in the last
+     *  (or current) search. */
+    long nodes() {
+        long total = 0;
+        for (Searcher searcher : _searchers) {
+            total += searcher.nodes();
+        }
+        return total;
+    }
+
+    /** Return the opponent's reply to the move found by the last search
+     *  that the search expects (as a move code), or Move.NO_MOVE if
+     *  there is none. */
+    int predictedReply() {
+        return _searchers[0].predictedReply();
+    }
+
+    /** Return the number of lines (see EngineOptions.multiPV) found by the
+     *  last search. */
+    int numLines() {
+        return _searchers[0].numLines();
+    }
+
+    /** Return the value (positive favoring white) of line K of the last
+     *  search, where line 0 is the best. */
+    int lineScore(int k) {
+        return _searchers[0].lineScore(k);
+    }
+
+    /** Return the moves of line K of the last search, as text. */
+    String lineText(int k) {
+        return _searchers[0].lineText(k);
+    }
+
+    /** Return the depth of the last search. */
+    int depth() {
+        return _searchers[0].depth();
+    }
+
+    /** Return the value (positive favoring white) of the last search. */
+    int score() {
+        return _searchers[0].score();
+    }
+
+    /** Return my options. */
+    EngineOptions options() {
+        return _options;
+    }
+
+    /** Return my transposition table. */
+    TranspositionTable table() {
+        return _table;
+    }
+
+    /** Settings controlling my searches. */
+    private final EngineOptions _options;
+
+    /** Results of earlier searches, indexed by position, shared by all my
+     *  Searchers. */
+    private final TranspositionTable _table;
+
+    /** One Searcher per thread; _searchers[0] runs on the calling
+     *  thread. */
+    private final Searcher[] _searchers;
+
+    /** Start time of the current search, as from System.nanoTime, and
+     *  the time it is allowed, in nanoseconds. */
+    private long _start, _budget;
+
+    /** True iff the current search has been told to stop. */
+    private volatile boolean _stopped;
+
+}
@@ -0,0 +1,162 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** Settings controlling the search performed by MachinePlayers, normally
+ *  taken from the command line.  All MachinePlayers created from the same
+ *  template share one EngineOptions.
+ *  @author Hankai Xing
+ */
+class EngineOptions {
+
+    /** Default size of each engine's transposition table, in megabytes. */
+    static final int DEFAULT_TABLE_SIZE = 16;
+
+    /** Default time allowed for each move, in milliseconds. */
+    static final int DEFAULT_TIME_LIMIT = 1000;
+
+    /** The largest number of lines that may be analyzed at once. */
+    static final int MAX_MULTI_PV = 32;
+
+    /** The largest search depth allowed. */
+    static final int MAX_DEPTH = 60;
+
+    /** Return the size of each engine's transposition table, in
+     *  megabytes. */
+    int tableSize() {
+        return _tableSize;
+    }
+
+    /** Set the size of each engine's transposition table to MEGABYTES. */
+    void setTableSize(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("table size must be positive");
+        }
+        _tableSize = megabytes;
+    }
+
+    /** Return the time allowed for each move, in milliseconds.  The
+     *  search stops, keeping the best move of the deepest finished
+     *  iteration, once this has passed. */
+    int timeLimit() {
+        return _timeLimit;
+    }
+
+    /** Set the time allowed for each move to MILLIS milliseconds. */
+    void setTimeLimit(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("time limit must be positive");
+        }
+        _timeLimit = millis;
+    }
+
+    /** Return the depth at which iterative deepening stops even if time
+     *  remains. */
+    int maxDepth() {
+        return _maxDepth;
+    }
+
+    /** Set the maximum search depth to DEPTH, which must be between 1 and
+     *  MAX_DEPTH. */
+    void setMaxDepth(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth out of range");
+        }
+        _maxDepth = depth;
+    }
+
+    /** Return the number of threads each search uses. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Set the number of search threads to THREADS, which must be
+     *  positive. */
+    void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be "
+                                               + "positive");
+        }
+        _threads = threads;
+    }
+
+    /** Return true iff the search uses null-move pruning. */
+    boolean nullMove() {
+        return _nullMove;
+    }
+
+    /** Use null-move pruning iff ON. */
+    void setNullMove(boolean on) {
+        _nullMove = on;
+    }
+
+    /** Return true iff the search reduces the depth of late, quiet
+     *  moves. */
+    boolean lateMoveReductions() {
+        return _lateMoveReductions;
+    }
+
+    /** Use late-move reductions iff ON. */
+    void setLateMoveReductions(boolean on) {
+        _lateMoveReductions = on;
+    }
+
+    /** Return the number of best moves found, each with its principal
+     *  variation and value.  When more than 1, automated players report
+     *  them all after each search (multi-PV analysis). */
+    int multiPV() {
+        return _multiPV;
+    }
+
+    /** Set the number of lines analyzed to LINES, which must be between 1
+     *  and MAX_MULTI_PV. */
+    void setMultiPV(int lines) {
+        if (lines < 1 || lines > MAX_MULTI_PV) {
+            throw new IllegalArgumentException("number of lines out of "
+                                               + "range");
+        }
+        _multiPV = lines;
+    }
+
+    /** Return true iff automated players search on their opponents' time
+     *  (ponder) when playing manual players. */
+    boolean ponder() {
+        return _ponder;
+    }
+
+    /** Ponder iff ON. */
+    void setPonder(boolean on) {
+        _ponder = on;
+    }
+
+    /** Return the static evaluation used at the leaves of searches. */
+    Evaluator evaluator() {
+        return _evaluator;
+    }
+
+    /** Use EVALUATOR as the static evaluation. */
+    void setEvaluator(Evaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException("null evaluator");
+        }
+        _evaluator = evaluator;
+    }
+
+    /** Size of transposition tables in megabytes. */
+    private int _tableSize = DEFAULT_TABLE_SIZE;
+    /** Time per move in milliseconds. */
+    private int _timeLimit = DEFAULT_TIME_LIMIT;
+    /** Maximum search depth. */
+    private int _maxDepth = MAX_DEPTH;
+    /** Number of search threads. */
+    private int _threads = 1;
+    /** True iff null-move pruning and late-move reductions are used. */
+    private boolean _nullMove = true, _lateMoveReductions = true;
+    /** Number of lines analyzed. */
+    private int _multiPV = 1;
+    /** True iff pondering. */
+    private boolean _ponder;
+    /** Static evaluation. */
+    private Evaluator _evaluator = new FeatureEvaluator();
+
+}
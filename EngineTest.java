@@ -0,0 +1,573 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Square.sq;
+import static loa.TranspositionTable.*;
+
+/** Tests of the components of the automated player.
+ *  @author Hankai Xing
+ */
+public class EngineTest {
+
+    @Test
+    public void testTableStoreProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = new Board().key();
+        int move = Move.code(sq("b1").index(), sq("b3").index(), EMP);
+        assertEquals("empty table", MISS, table.probe(key));
+        table.store(key, move, 5, LOWER, -1234);
+        long entry = table.probe(key);
+        assertEquals("stored move", move, TranspositionTable.move(entry));
+        assertEquals("stored depth", 5, depth(entry));
+        assertEquals("stored bound", LOWER, bound(entry));
+        assertEquals("stored score", -1234, score(entry));
+        table.store(key, Move.NO_MOVE, 6, EXACT, 99);
+        entry = table.probe(key);
+        assertEquals("move kept on replacement", move,
+                     TranspositionTable.move(entry));
+        assertEquals("replaced score", 99, score(entry));
+        assertEquals("other key absent", MISS, table.probe(key + 1));
+        table.clear();
+        assertEquals("cleared", MISS, table.probe(key));
+    }
+
+    @Test
+    public void testTableReplacement() {
+        TranspositionTable table = new TranspositionTable(0);
+        assertEquals("minimal table is one bucket", BUCKET_SIZE,
+                     table.capacity());
+        for (int k = 1; k <= BUCKET_SIZE; k += 1) {
+            table.store(k, Move.NO_MOVE, 10 + k, EXACT, k);
+        }
+        table.store(100, Move.NO_MOVE, 1, EXACT, 100);
+        assertEquals("shallowest entry replaced", MISS, table.probe(1));
+        table.newSearch();
+        table.store(200, Move.NO_MOVE, 1, EXACT, 200);
+        table.store(300, Move.NO_MOVE, 1, EXACT, 300);
+        assertEquals("stale entry replaced first", MISS, table.probe(2));
+        assertEquals("current entry kept", 200, score(table.probe(200)));
+    }
+
+    @Test
+    public void testSearch() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(3);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board();
+        board.makeMove(Move.mv("b1-b3"));
+        Board before = new Board(board);
+        int move = new Engine(options).search(board);
+        assertEquals("position unchanged by search", before, board);
+        assertTrue("legal move found", board.isLegal(Move.mv(move)));
+        Engine engine = new Engine(options);
+        assertEquals("single thread is deterministic", move,
+                     engine.search(board));
+        assertNotEquals("root stored", MISS,
+                        engine.table().probe(board.key()));
+        engine.clear();
+        assertEquals("table cleared for a new game", MISS,
+                     engine.table().probe(board.key()));
+        options.setThreads(3);
+        Engine parallel = new Engine(options);
+        assertTrue("legal parallel move",
+                   board.isLegal(Move.mv(parallel.search(board))));
+        assertEquals("main thread reached full depth", 3, parallel.depth());
+    }
+
+    @Test
+    public void testTimeLimit() {
+        EngineOptions options = new EngineOptions();
+        options.setTimeLimit(200);
+        Board board = new Board();
+        board.makeMove(Move.mv("b1-b3"));
+        Engine timed = new Engine(options);
+        int move = timed.search(board);
+        int depth = timed.depth();
+        assertTrue("stopped by the time limit",
+                   depth >= 1 && depth < EngineOptions.MAX_DEPTH);
+        options.setMaxDepth(depth);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        assertEquals("move of the last completed iteration", move,
+                     new Engine(options).search(board));
+    }
+
+    @Test
+    public void testMoveLimitDraw() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(4);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board();
+        board.makeMove(Move.mv("b1-b3"));
+        board.setMoveLimit(1);
+        Engine engine = new Engine(options);
+        int move = engine.search(board);
+        assertTrue("legal move found", board.isLegal(Move.mv(move)));
+        assertEquals("every reply ends in a draw", 0, engine.score());
+    }
+
+    /** A position in which black, to move, has no legal move: each black
+     *  piece is blocked by white pieces in every direction.  White can
+     *  keep it so by moving d6 to d5 or d7. */
+    static final Piece[][] NO_MOVES = {
+        { BP,  WP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { WP,  WP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, WP,  EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, WP,  WP  },
+        { EMP, EMP, EMP, EMP, EMP, EMP, WP,  BP  }
+    };
+
+    @Test
+    public void testNoLegalMoves() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(3);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board(NO_MOVES, BP);
+        assertTrue("no legal moves", board.legalMoves().isEmpty());
+        assertEquals("black, unable to move, loses", WP, board.winner());
+        Engine engine = new Engine(options);
+        assertEquals("no move found", Move.NO_MOVE, engine.search(board));
+        board = new Board(NO_MOVES, WP);
+        assertNull("game not over with white to move", board.winner());
+        engine.search(board);
+        assertEquals("scored as a win in one", Searcher.WINNING_VALUE - 1,
+                     engine.score());
+        MachinePlayer white =
+            new MachinePlayer(WP, new TestGame(board), options);
+        board.makeMove(Move.mv(white.getMove()));
+        assertTrue("white leaves black without a move",
+                   board.legalMoves().isEmpty());
+        assertEquals("white wins", WP, board.winner());
+        MachinePlayer black =
+            new MachinePlayer(BP, new TestGame(board), options);
+        try {
+            black.getMove();
+            fail("move returned with no legal move");
+        } catch (IllegalStateException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** A position in which black has just two moves that do not let white
+     *  connect its pieces at once. */
+    static final Piece[][] THREATENED = {
+        { EMP, EMP, EMP, EMP, BP,  WP,  WP,  EMP },
+        { EMP, BP,  EMP, BP,  EMP, WP,  WP,  EMP },
+        { BP,  EMP, EMP, BP,  WP,  EMP, EMP, EMP },
+        { EMP, BP,  EMP, EMP, WP,  BP,  EMP, EMP },
+        { EMP, WP,  EMP, WP,  EMP, EMP, EMP, BP  },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, BP  },
+        { EMP, EMP, WP,  EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, BP,  EMP, EMP, EMP, EMP }
+    };
+
+    @Test
+    public void testQuiescence() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(1);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board(THREATENED, BP);
+        board.makeMove(new Engine(options).search(board));
+        MoveList replies = new MoveList();
+        board.legalMoves(replies);
+        for (int k = 0; k < replies.size(); k += 1) {
+            board.makeMove(replies.get(k));
+            assertNotEquals("connecting reply seen beyond the horizon", WP,
+                            board.winner());
+            board.retract();
+        }
+    }
+
+    /** A position in which white threatens d1-d4, which joins four white
+     *  regions (c3, c5, e5, and d1 itself) at once. */
+    static final Piece[][] JOINING = {
+        { BP,  EMP, EMP, WP,  EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, WP,  EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, BP  },
+        { EMP, EMP, WP,  EMP, WP,  EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, BP,  EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, BP,  EMP, EMP, EMP, EMP }
+    };
+
+    @Test
+    public void testQuiescenceJoinsRegions() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(1);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board(JOINING, BP);
+        Board threat = new Board(JOINING, WP);
+        threat.makeMove(Move.mv("d1-d4"));
+        assertEquals("d1-d4 wins for white", WP, threat.winner());
+        board.makeMove(new Engine(options).search(board));
+        MoveList replies = new MoveList();
+        board.legalMoves(replies);
+        for (int k = 0; k < replies.size(); k += 1) {
+            board.makeMove(replies.get(k));
+            assertNotEquals("reply joining several regions seen", WP,
+                            board.winner());
+            board.retract();
+        }
+    }
+
+    @Test
+    public void testMultiPV() {
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(3);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        options.setMultiPV(4);
+        Board board = new Board();
+        Engine engine = new Engine(options);
+        int best = engine.search(board);
+        assertEquals("number of lines", 4, engine.numLines());
+        Set<String> firstMoves = new HashSet<>();
+        for (int k = 0; k < engine.numLines(); k += 1) {
+            String first = engine.lineText(k).split(" ")[0];
+            assertTrue("legal line", board.isLegal(Move.mv(first)));
+            firstMoves.add(first);
+            if (k > 0) {
+                assertTrue("lines ordered best first for black",
+                           engine.lineScore(k - 1) <= engine.lineScore(k));
+            }
+        }
+        assertEquals("distinct first moves", 4, firstMoves.size());
+        assertEquals("best line is the move chosen",
+                     Move.mv(best).toString(),
+                     engine.lineText(0).split(" ")[0]);
+    }
+
+    @Test
+    public void testEvaluators() {
+        Board[] positions = SearchBenchmark.positions().toArray(new Board[0]);
+        int[] scores = new int[positions.length];
+        for (String name : new String[] { "features", "regions" }) {
+            Evaluator eval = Evaluator.forName(name);
+            eval.score(positions, scores);
+            for (int k = 0; k < positions.length; k += 1) {
+                assertEquals(name + " batch score", eval.score(positions[k]),
+                             scores[k]);
+            }
+        }
+        assertEquals("initial position is even", 0,
+                     new FeatureEvaluator().score(new Board()));
+        try {
+            Evaluator.forName("nonesuch");
+            fail("unknown evaluator accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testFeatureWeights() throws IOException {
+        int[] weights = { 70, 5, 40 };
+        FeatureEvaluator eval = new FeatureEvaluator(weights);
+        File file = File.createTempFile("weights", ".txt");
+        file.deleteOnExit();
+        try (PrintStream out = new PrintStream(file)) {
+            eval.write(out);
+        }
+        assertArrayEquals("weights read back", weights,
+                          FeatureEvaluator.read(file.getPath()).weights());
+        double[] terms = new double[FeatureEvaluator.NUM_WEIGHTS];
+        for (Board board : SearchBenchmark.positions()) {
+            FeatureEvaluator.terms(board.features(BP), board.features(WP),
+                                   terms, 0);
+            double linear = 0.0;
+            for (int k = 0; k < terms.length; k += 1) {
+                linear += weights[k] * terms[k];
+            }
+            int score = board.turn() == WP ? eval.score(board)
+                : -eval.score(board);
+            assertEquals("score linear in weights", linear, score,
+                         2 * (weights[1] + weights[2]));
+        }
+    }
+
+    @Test
+    public void testMCTS() {
+        EngineOptions options = new EngineOptions();
+        options.setTableSize(1);
+        options.setTimeLimit(300);
+        MCTS search = new MCTS(options);
+        Board board = new Board();
+        int move = search.search(board);
+        assertTrue("legal move found", board.isLegal(Move.mv(move)));
+        assertTrue("tree bounded", search.nodesInUse() <= search.capacity());
+        board.makeMove(move);
+        MoveList replies = new MoveList();
+        board.legalMoves(replies);
+        board.makeMove(replies.get(0));
+        search.search(board);
+        assertTrue("tree reused",
+                   search.rootVisits() > search.playouts());
+        assertTrue("tree still bounded",
+                   search.nodesInUse() <= search.capacity());
+        Board stuck = new Board(NO_MOVES, BP);
+        assertEquals("no move found", Move.NO_MOVE,
+                     new MCTS(options).search(stuck));
+        MCTSPlayer player = new MCTSPlayer(BP, new TestGame(stuck), options);
+        try {
+            player.getMove();
+            fail("move returned with no legal move");
+        } catch (IllegalStateException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** A position set up by hand in which black has 101 legal moves. */
+    static final Piece[][] CROWDED = {
+        { BP,  BP,  EMP, BP,  EMP, EMP, EMP, WP  },
+        { WP,  BP,  EMP, EMP, EMP, EMP, BP,  BP  },
+        { EMP, EMP, EMP, BP,  BP,  BP,  BP,  EMP },
+        { EMP, EMP, BP,  EMP, EMP, BP,  EMP, EMP },
+        { EMP, EMP, BP,  BP,  EMP, EMP, EMP, BP  },
+        { BP,  EMP, BP,  EMP, BP,  EMP, EMP, EMP },
+        { BP,  BP,  EMP, BP,  EMP, EMP, BP,  EMP },
+        { EMP, EMP, EMP, BP,  EMP, BP,  EMP, BP  }
+    };
+
+    @Test
+    public void testPlayouts() {
+        Playouts kernel = new Playouts(new SplittableRandom(1));
+        MoveList expected = new MoveList(), actual = new MoveList();
+        for (Board board : SearchBenchmark.positions()) {
+            board.legalMoves(expected);
+            kernel.legalMoves(board, actual);
+            assertEquals("number of moves", expected.size(), actual.size());
+            for (int k = 0; k < actual.size(); k += 1) {
+                assertTrue("legal move",
+                           board.isLegal(Move.mv(actual.get(k))));
+            }
+            int[] counts = Playouts.playouts(board, 50);
+            assertEquals("all playouts counted", 50,
+                         counts[BP.ordinal()] + counts[WP.ordinal()]
+                         + counts[EMP.ordinal()]);
+        }
+        assertEquals("game already won", BP,
+                     kernel.playout(new Board(BoardTest.BOARD2, WP)));
+        Board crowded = new Board(CROWDED, BP);
+        crowded.legalMoves(expected);
+        kernel.legalMoves(crowded, actual);
+        assertTrue("more moves than from the initial position",
+                   expected.size() > 96);
+        assertEquals("number of moves when crowded", expected.size(),
+                     actual.size());
+        assertNotNull("crowded playout", kernel.playout(crowded));
+        Board fullRow = position("a1 c1 e1 g1 d5", "b1 d1 f1 h1 e4", BP);
+        fullRow.legalMoves(expected);
+        kernel.legalMoves(fullRow, actual);
+        assertEquals("number of moves with a full row", expected.size(),
+                     actual.size());
+        Board ending = new Board();
+        ending.makeMove(Move.mv("b1-b3"));
+        ending.setMoveLimit(1);
+        assertEquals("tie at move limit", EMP, kernel.playout(ending));
+    }
+
+    /** Return a position with black pieces on the squares named in
+     *  BLACK and white pieces on those in WHITE (separated by blanks),
+     *  with TURN to move. */
+    private static Board position(String black, String white, Piece turn) {
+        Board board = new Board(new Piece[8][8], turn);
+        for (String name : black.split(" ")) {
+            if (!name.isEmpty()) {
+                board.set(sq(name), BP);
+            }
+        }
+        for (String name : white.split(" ")) {
+            if (!name.isEmpty()) {
+                board.set(sq(name), WP);
+            }
+        }
+        return board;
+    }
+
+    @Test
+    public void testPlayoutWinner() {
+        Playouts kernel = new Playouts(new SplittableRandom(1));
+        Board[] ended = {
+            position("d4 d5", "", BP),
+            position("d4 d5", "", WP),
+            position("", "c3 c4", BP),
+            position("d4", "a1 h8", WP),
+            position("a1 b2", "g7 h8", BP),
+            position("a1 b2", "g7 h8", WP),
+            position("d4 d6", "", WP),
+        };
+        for (Board board : ended) {
+            assertNotNull("game over", board.winner());
+            assertEquals("same winner as the board", board.winner(),
+                         kernel.playout(board));
+        }
+        Board noWhite = position("a1 h8", "", BP);
+        assertNull("game not over", noWhite.winner());
+        for (int k = 0; k < 20; k += 1) {
+            assertEquals("side with no moves loses", BP,
+                         kernel.playout(noWhite));
+        }
+        Board stuck = new Board(NO_MOVES, BP);
+        assertEquals("stuck side loses as on the board", stuck.winner(),
+                     kernel.playout(stuck));
+    }
+
+    /** Time limit per move in testPonder, in milliseconds. */
+    static final int PONDER_TIME_LIMIT = 400;
+
+    /** Return the time taken by PLAYER.getMove() in milliseconds, making
+     *  the move it returns on BOARD. */
+    private static long timedMove(MachinePlayer player, Board board) {
+        long start = System.nanoTime();
+        String move = player.getMove();
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("legal move", board.isLegal(Move.mv(move)));
+        board.makeMove(Move.mv(move));
+        return millis;
+    }
+
+    @Test
+    public void testPonder() throws InterruptedException {
+        EngineOptions options = new EngineOptions();
+        options.setTimeLimit(PONDER_TIME_LIMIT);
+        options.setPonder(true);
+        Board board = new Board();
+        MachinePlayer player =
+            new MachinePlayer(BP, new TestGame(board), options);
+        timedMove(player, board);
+        int reply = player.expectedReply();
+        assertNotEquals("reply expected", Move.NO_MOVE, reply);
+        player.startPondering();
+        Thread.sleep(PONDER_TIME_LIMIT * 3 / 2);
+        player.stopPondering();
+        board.makeMove(reply);
+        assertTrue("long ponder hit replies at once",
+                   timedMove(player, board) < PONDER_TIME_LIMIT / 4);
+
+        reply = player.expectedReply();
+        assertNotEquals("reply expected", Move.NO_MOVE, reply);
+        player.startPondering();
+        Thread.sleep(PONDER_TIME_LIMIT / 2);
+        player.stopPondering();
+        board.makeMove(reply);
+        assertTrue("short ponder hit uses only the time left",
+                   timedMove(player, board) < PONDER_TIME_LIMIT * 3 / 4);
+
+        reply = player.expectedReply();
+        player.startPondering();
+        Thread.sleep(PONDER_TIME_LIMIT / 2);
+        player.stopPondering();
+        MoveList replies = new MoveList();
+        board.legalMoves(replies);
+        board.makeMove(replies.get(0) == reply ? replies.get(1)
+                       : replies.get(0));
+        timedMove(player, board);
+        assertTrue("full search after ponder miss", player.depth() > 0);
+    }
+
+    @Test
+    public void testStopPondering() throws InterruptedException {
+        EngineOptions options = new EngineOptions();
+        options.setTimeLimit(100);
+        options.setPonder(true);
+        Board board = new Board();
+        MachinePlayer player =
+            new MachinePlayer(BP, new TestGame(board), options);
+        board.makeMove(Move.mv(player.getMove()));
+        player.startPondering();
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        player.stopPondering();
+        assertTrue("pondering stops promptly",
+                   System.nanoTime() - start < 5000000000L);
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        EngineOptions options = new EngineOptions();
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board();
+        MachinePlayer player =
+            new MachinePlayer(BP, new TestGame(board), options);
+        String[] move = new String[1];
+        Thread thinker = new Thread(() -> move[0] = player.getMove());
+        thinker.start();
+        Thread.sleep(200);
+        player.stop();
+        thinker.join(5000);
+        assertFalse("stopped player returns promptly", thinker.isAlive());
+        assertTrue("best move so far is legal",
+                   board.isLegal(Move.mv(move[0])));
+    }
+
+    @Test
+    public void testStopBeforeSearch() throws InterruptedException {
+        EngineOptions options = new EngineOptions();
+        options.setTimeLimit(Integer.MAX_VALUE);
+        Board board = new Board();
+        Game game = new TestGame(board);
+        MachinePlayer player = new MachinePlayer(BP, game, options);
+        game.stop();
+        String[] move = new String[1];
+        Thread thinker = new Thread(() -> move[0] = player.getMove());
+        thinker.start();
+        thinker.join(5000);
+        assertFalse("stop before the search starts is kept",
+                    thinker.isAlive());
+        assertTrue("move is legal", board.isLegal(Move.mv(move[0])));
+    }
+
+    /** A Game, for testing players outside of play, whose board is
+     *  always BOARD and whose reports are discarded. */
+    private static class TestGame extends Game {
+        /** A game on BOARD. */
+        TestGame(Board board) {
+            super(new NullView(), null, SILENT, new HumanPlayer(),
+                  new MachinePlayer(), new MachinePlayer(), false);
+            _testBoard = board;
+        }
+
+        @Override
+        Board getBoard() {
+            return _testBoard;
+        }
+
+        /** The board of this game. */
+        private final Board _testBoard;
+    }
+
+    /** A Reporter that discards all reports. */
+    private static final Reporter SILENT = new Reporter() {
+        @Override
+        public void reportError(String format, Object... args) {
+        }
+
+        @Override
+        public void reportNote(String format, Object... args) {
+        }
+
+        @Override
+        public void reportMove(Move move) {
+        }
+
+        @Override
+        public void reportAnalysis(int rank, int depth, int score,
+                                   String line) {
+        }
+    };
+
+}
@@ -0,0 +1,39 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** A static evaluation function: an estimate of the value of a position
+ *  without search.  Evaluators are shared by all the threads of a
+ *  search, and so must not change state while scoring.
+ *  @author Hankai Xing
+ */
+interface Evaluator {
+
+    /** Return the estimated value of BOARD for the player to move:
+     *  positive if that player is ahead.  BOARD must not be modified. */
+    int score(Board board);
+
+    /** Set OUT[K] to score(POSITIONS[K]) for each K, 0 <= K <
+     *  POSITIONS.length.  For scoring many positions at once, as in
+     *  SearchBenchmark's timing of evaluators. */
+    default void score(Board[] positions, int[] out) {
+        for (int k = 0; k < positions.length; k += 1) {
+            out[k] = score(positions[k]);
+        }
+    }
+
+    /** Return a new Evaluator of the type named NAME: "features" (see
+     *  FeatureEvaluator) or "regions" (see RegionEvaluator).  Throws
+     *  IllegalArgumentException for other names. */
+    static Evaluator forName(String name) {
+        switch (name) {
+        case "features":
+            return new FeatureEvaluator();
+        case "regions":
+            return new RegionEvaluator();
+        default:
+            throw new IllegalArgumentException("unknown evaluator: " + name);
+        }
+    }
+
+}
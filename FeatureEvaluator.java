@@ -0,0 +1,149 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Scanner;
+
+/** An evaluation computed in constant time from the Features that a
+ *  Board keeps for each color: a weighted sum of the differences between
+ *  the two sides in estimated number of regions, concentration, and
+ *  centrality.
+ *  @author Hankai Xing
+ */
+class FeatureEvaluator implements Evaluator {
+
+    /** Indices of the weights: of one fewer region than the opponent
+     *  (as estimated by the Euler number), of a unit smaller mean
+     *  squared distance of the pieces from their centre of mass, and
+     *  of a unit greater mean centrality. */
+    static final int EULER = 0, SPREAD = 1, CENTRALITY = 2;
+
+    /** Number of weights. */
+    static final int NUM_WEIGHTS = 3;
+
+    /** The names of the weights in weights files, indexed by EULER,
+     *  SPREAD, and CENTRALITY. */
+    static final String[] WEIGHT_NAMES = { "euler", "spread", "centrality" };
+
+    /** The default weights. */
+    static final int[] DEFAULT_WEIGHTS = { 100, 10, 20 };
+
+    /** An evaluator using the default weights. */
+    FeatureEvaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /** An evaluator using WEIGHTS, indexed by EULER, SPREAD, and
+     *  CENTRALITY. */
+    FeatureEvaluator(int[] weights) {
+        if (weights.length != NUM_WEIGHTS) {
+            throw new IllegalArgumentException("wrong number of weights");
+        }
+        _weights = weights.clone();
+    }
+
+    /** Return an evaluator using the weights in the file named FILENAME,
+     *  in the format produced by write: a weight name from WEIGHT_NAMES
+     *  followed by its value, for each weight in any order.  Lines
+     *  starting with '#' are ignored.  Throws IllegalArgumentException if
+     *  the file is malformed. */
+    static FeatureEvaluator read(String fileName) throws IOException {
+        int[] weights = new int[NUM_WEIGHTS];
+        boolean[] seen = new boolean[NUM_WEIGHTS];
+        try (Scanner inp = new Scanner(new File(fileName))) {
+            while (inp.hasNextLine()) {
+                String line = inp.nextLine().trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] words = line.split("\\s+");
+                int k = Arrays.asList(WEIGHT_NAMES).indexOf(words[0]);
+                if (words.length != 2 || k < 0 || seen[k]) {
+                    throw new IllegalArgumentException("bad weights line: "
+                                                       + line);
+                }
+                weights[k] = Integer.parseInt(words[1]);
+                seen[k] = true;
+            }
+        }
+        for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+            if (!seen[k]) {
+                throw new IllegalArgumentException("missing weight: "
+                                                   + WEIGHT_NAMES[k]);
+            }
+        }
+        return new FeatureEvaluator(weights);
+    }
+
+    /** Write my weights to OUT in the format read by read. */
+    void write(PrintStream out) {
+        for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+            out.printf("%s %d%n", WEIGHT_NAMES[k], _weights[k]);
+        }
+    }
+
+    /** Set TERMS[START + K], for each weight index K, to the value by which
+     *  weight K is multiplied in the score for white of a position in
+     *  which the black and white pieces are described by BLACK and WHITE,
+     *  so that the score is the sum of the products (less the rounding
+     *  of score).  The score is thus linear in the weights, as tuning
+     *  requires. */
+    static void terms(Features black, Features white, double[] terms,
+                      int start) {
+        terms[start + EULER] = black.eulerNumber() - white.eulerNumber();
+        terms[start + SPREAD] = meanSpread(black) - meanSpread(white);
+        terms[start + CENTRALITY] =
+            meanCentrality(white) - meanCentrality(black);
+    }
+
+    /** Return the mean squared distance of the pieces described by
+     *  FEATURES from their centre of mass, or 0 if there are none. */
+    private static double meanSpread(Features features) {
+        int n = features.count();
+        return n == 0 ? 0.0 : (double) features.spread() / (n * n);
+    }
+
+    /** Return the mean centrality of the pieces described by FEATURES, or
+     *  0 if there are none. */
+    private static double meanCentrality(Features features) {
+        int n = features.count();
+        return n == 0 ? 0.0 : (double) features.centrality() / n;
+    }
+
+    /** Return a copy of my weights. */
+    int[] weights() {
+        return _weights.clone();
+    }
+
+    @Override
+    public int score(Board board) {
+        Piece side = board.turn();
+        return sideScore(board.features(side))
+            - sideScore(board.features(side.opposite()));
+    }
+
+    /** Return the contribution to the score of the pieces described by
+     *  FEATURES. */
+    private int sideScore(Features features) {
+        int n = features.count();
+        if (n == 0) {
+            return 0;
+        }
+        return -_weights[EULER] * features.eulerNumber()
+            - _weights[SPREAD] * features.spread() / (n * n)
+            + _weights[CENTRALITY] * features.centrality() / n;
+    }
+
+    @Override
+    public String toString() {
+        return "features " + Arrays.toString(_weights);
+    }
+
+    /** My weights. */
+    private final int[] _weights;
+
+}
@@ -0,0 +1,202 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Bitboards.*;
+import static loa.Square.*;
+
+/** Evaluation features of the pieces of one color on a Board, kept up to
+ *  date as pieces are added and removed, so that each may be read in
+ *  constant time.  They are:
+ *  <ul>
+ *  <li> Quad counts: the numbers of 2x2 blocks of squares (including
+ *       those hanging over the edges of the board) containing exactly
+ *       one piece, exactly three, or exactly two on a diagonal.  From
+ *       these, eulerNumber gives the number of regions less the number
+ *       of holes in them, a close and cheap estimate of the number of
+ *       regions.
+ *  <li> The sums of the pieces' columns and rows and of their squares,
+ *       from which spread gives how closely the pieces gather around
+ *       their centre of mass.
+ *  <li> The total centrality of the pieces (see CENTRALITY).
+ *  </ul>
+ *  @author Hankai Xing
+ */
+final class Features {
+
+    /** The centrality of each square, indexed by square index: its
+     *  distance from the edge of the board, 0 to 3. */
+    static final int[] CENTRALITY = new int[NUM_SQUARES];
+
+    /** Number of quads along each side. */
+    private static final int QUAD_SIZE = BOARD_SIZE + 1;
+
+    /** The squares in each quad.  Quad number
+     *  (R + 1) * QUAD_SIZE + C + 1 has lower-left corner at column C and
+     *  row R, for -1 <= C, R < BOARD_SIZE. */
+    private static final long[] QUAD_MASKS = new long[QUAD_SIZE * QUAD_SIZE];
+
+    /** The two diagonal pairs of squares in each quad (0 if a pair is not
+     *  entirely on the board). */
+    private static final long[][] QUAD_DIAGONALS =
+        new long[QUAD_MASKS.length][2];
+
+    /** The four quads containing each square, indexed by square index. */
+    private static final int[][] SQUARE_QUADS = new int[NUM_SQUARES][4];
+
+    /** Quad types counted: one piece, three pieces, or two on a
+     *  diagonal. */
+    private static final int Q1 = 0, Q3 = 1, QD = 2, NONE = 3;
+
+    static {
+        for (int r = -1; r < BOARD_SIZE; r += 1) {
+            for (int c = -1; c < BOARD_SIZE; c += 1) {
+                int q = (r + 1) * QUAD_SIZE + c + 1;
+                long sw = at(c, r), se = at(c + 1, r),
+                    nw = at(c, r + 1), ne = at(c + 1, r + 1);
+                QUAD_MASKS[q] = sw | se | nw | ne;
+                QUAD_DIAGONALS[q][0] = sw != 0 && ne != 0 ? sw | ne : 0;
+                QUAD_DIAGONALS[q][1] = se != 0 && nw != 0 ? se | nw : 0;
+            }
+        }
+        for (Square s : ALL_SQUARES) {
+            int c = s.col(), r = s.row(), k = s.index();
+            CENTRALITY[k] = Math.min(Math.min(c, BOARD_SIZE - 1 - c),
+                                     Math.min(r, BOARD_SIZE - 1 - r));
+            SQUARE_QUADS[k][0] = r * QUAD_SIZE + c;
+            SQUARE_QUADS[k][1] = r * QUAD_SIZE + c + 1;
+            SQUARE_QUADS[k][2] = (r + 1) * QUAD_SIZE + c;
+            SQUARE_QUADS[k][3] = (r + 1) * QUAD_SIZE + c + 1;
+        }
+    }
+
+    /** Return the set containing the square at column C and row R, or the
+     *  empty set if there is none. */
+    private static long at(int c, int r) {
+        return exists(c, r) ? bit(sq(c, r)) : EMPTY;
+    }
+
+    /** Set me to describe an empty set of pieces. */
+    void clear() {
+        _count = _sumCols = _sumRows = _sumSquares = _centrality = 0;
+        _quads[Q1] = _quads[Q3] = _quads[QD] = 0;
+    }
+
+    /** Set me to a copy of OTHER. */
+    void copyFrom(Features other) {
+        _count = other._count;
+        _sumCols = other._sumCols;
+        _sumRows = other._sumRows;
+        _sumSquares = other._sumSquares;
+        _centrality = other._centrality;
+        System.arraycopy(other._quads, 0, _quads, 0, NONE);
+    }
+
+    /** Update me for the addition of a piece at the square with index K
+     *  to PIECES, which does not contain it. */
+    void add(int k, long pieces) {
+        update(k, pieces, pieces | bit(k));
+        int c = k % BOARD_SIZE, r = k / BOARD_SIZE;
+        _count += 1;
+        _sumCols += c;
+        _sumRows += r;
+        _sumSquares += c * c + r * r;
+        _centrality += CENTRALITY[k];
+    }
+
+    /** Update me for the removal of the piece at the square with index K
+     *  from PIECES, which contains it. */
+    void remove(int k, long pieces) {
+        update(k, pieces, pieces & ~bit(k));
+        int c = k % BOARD_SIZE, r = k / BOARD_SIZE;
+        _count -= 1;
+        _sumCols -= c;
+        _sumRows -= r;
+        _sumSquares -= c * c + r * r;
+        _centrality -= CENTRALITY[k];
+    }
+
+    /** Return the number of pieces. */
+    int count() {
+        return _count;
+    }
+
+    /** Return the Euler number of the pieces (with pieces adjacent if
+     *  they touch orthogonally or diagonally): the number of regions
+     *  less the number of holes. */
+    int eulerNumber() {
+        return (_quads[Q1] - _quads[Q3] - 2 * _quads[QD]) / 4;
+    }
+
+    /** Return count() times the sum of the squared distances of the
+     *  pieces from their centre of mass.  This is 0 for a single piece
+     *  and grows as the pieces scatter. */
+    int spread() {
+        return _count * _sumSquares - _sumCols * _sumCols
+            - _sumRows * _sumRows;
+    }
+
+    /** Return the sum of the centralities (see CENTRALITY) of the
+     *  pieces. */
+    int centrality() {
+        return _centrality;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Features)) {
+            return false;
+        }
+        Features other = (Features) obj;
+        return _count == other._count && _sumCols == other._sumCols
+            && _sumRows == other._sumRows
+            && _sumSquares == other._sumSquares
+            && _centrality == other._centrality
+            && _quads[Q1] == other._quads[Q1]
+            && _quads[Q3] == other._quads[Q3]
+            && _quads[QD] == other._quads[QD];
+    }
+
+    @Override
+    public int hashCode() {
+        return (_count * 31 + _sumSquares) * 31 + eulerNumber();
+    }
+
+    /** Update the quad counts for the quads around the square with
+     *  index K when my pieces change from BEFORE to AFTER. */
+    private void update(int k, long before, long after) {
+        for (int q : SQUARE_QUADS[k]) {
+            _quads[quadType(q, before)] -= 1;
+            _quads[quadType(q, after)] += 1;
+        }
+    }
+
+    /** Return the type (Q1, Q3, QD, or NONE) of quad Q for the set of
+     *  pieces PIECES. */
+    private static int quadType(int q, long pieces) {
+        long inQuad = pieces & QUAD_MASKS[q];
+        switch (Long.bitCount(inQuad)) {
+        case 1:
+            return Q1;
+        case 3:
+            return Q3;
+        case 2:
+            return inQuad == QUAD_DIAGONALS[q][0]
+                || inQuad == QUAD_DIAGONALS[q][1] ? QD : NONE;
+        default:
+            return NONE;
+        }
+    }
+
+    /** Number of pieces. */
+    private int _count;
+    /** Sums of the pieces' columns, rows, and squared columns and
+     *  rows. */
+    private int _sumCols, _sumRows, _sumSquares;
+    /** Total centrality. */
+    private int _centrality;
+    /** Numbers of quads of each type, indexed by Q1, Q3, QD, and (as a
+     *  place to count the rest) NONE. */
+    private final int[] _quads = new int[NONE + 1];
+
+}
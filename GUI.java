@@ -44,6 +44,7 @@ class GUI extends TopLevel implements View, Reporter {
         addMenuButton("Help->Loa", (s) -> displayText("Loa Help",
                 HELP_TEXT));
         addMenuButton("Game->Undo", this::undo);
+        addMenuButton("Game->Stop", this::stop);
         addMenuButton("Game->Auto White", this::aw);
         addMenuButton("Game->Auto Black", this::ab);
         addMenuButton("Game->Manual White", this::mw);
@@ -59,6 +60,10 @@ class GUI extends TopLevel implements View, Reporter {
                  new LayoutSpec("x", 0, "y", 0,
                                 "height", 1,
                                 "width", 3));
+        addLabel("", "Analysis",
+                 new LayoutSpec("x", 0, "y", 2,
+                                "height", 1,
+                                "width", 3));
     }
 
     /** Response to "Quit" button click. */
@@ -76,6 +81,17 @@ class GUI extends TopLevel implements View, Reporter {
         _pendingCommands.offer("undo");
     }
 
+    /** Response to "Stop" button click: make the automated player that is
+     *  thinking, if any, move at once.  Acts directly on the game rather
+     *  than queuing a command, since the game is not reading commands
+     *  while it waits for the move. */
+    private void stop(String dummy) {
+        Game game = _game;
+        if (game != null) {
+            game.stop();
+        }
+    }
+
     /** Response to "Auto White" button click. */
     private void aw(String dummy) {
         _pendingCommands.offer("auto white");
@@ -116,6 +132,7 @@ class GUI extends TopLevel implements View, Reporter {
     @Override
     public void update(Game controller) {
         Board board = controller.getBoard();
+        _game = controller;
 
         _widget.update(board);
         if (board.winner() != null) {
@@ -181,9 +198,25 @@ class GUI extends TopLevel implements View, Reporter {
     public void reportMove(Move unused) {
     }
 
+    @Override
+    public void reportAnalysis(int rank, int depth, int score, String line) {
+        if (rank == 1) {
+            _analysis.setLength(0);
+        }
+        _analysis.append(String.format("%d. [%d] %d: %s<br>",
+                                       rank, depth, score, line));
+        setLabel("Analysis", "<html>" + _analysis + "</html>");
+    }
+
     /** The board widget. */
     private BoardWidget _widget;
 
+    /** The lines of the analysis being displayed, as HTML. */
+    private StringBuilder _analysis = new StringBuilder();
+
+    /** The game I last displayed. */
+    private volatile Game _game;
+
     /** Queue of pending commands resulting from menu clicks and moves on the
      *  board.  We use a blocking queue because the responses to clicks
      *  on the board and on menus happen in parallel to the methods that
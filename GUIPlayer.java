@@ -58,6 +58,11 @@ class GUIPlayer extends Player implements Reporter {
     public void reportMove(Move unused) {
     }
 
+    @Override
+    public void reportAnalysis(int rank, int depth, int score, String line) {
+        _gui.reportAnalysis(rank, depth, score, line);
+    }
+
     /** The GUI I use for input. */
     private GUI _gui;
 }
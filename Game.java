@@ -5,6 +5,7 @@ package loa;
 import java.io.PrintStream;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -25,8 +26,9 @@ class Game {
 
     /** Controller for one or more games of LOA, using
      *  MANUALPLAYERTEMPLATE as an exemplar for manual players
-     *  (see the Player.create method) and AUTOPLAYERTEMPLATE
-     *  as an exemplar for automated players.  Reports
+     *  (see the Player.create method), AUTOPLAYERTEMPLATE
+     *  as an exemplar for automated players, and MCTSPLAYERTEMPLATE
+     *  for automated players using Monte Carlo tree search.  Reports
      *  board changes to VIEW at appropriate points.  Uses REPORTER
      *  to report moves, wins, and errors to user. If LOGFILE is
      *  non-null, copies all commands to it. If STRICT, exits the
@@ -34,13 +36,14 @@ class Game {
      *  player. */
     Game(View view, PrintStream logFile, Reporter reporter,
          Player manualPlayerTemplate, Player autoPlayerTemplate,
-         boolean strict) {
+         Player mctsPlayerTemplate, boolean strict) {
         _view = view;
         _playing = false;
         _logFile = logFile;
         _input = new Scanner(System.in);
         _autoPlayerTemplate = autoPlayerTemplate;
         _manualPlayerTemplate = manualPlayerTemplate;
+        _mctsPlayerTemplate = mctsPlayerTemplate;
         _nonplayer = manualPlayerTemplate.create(EMP, this);
         _white = _autoPlayerTemplate.create(WP, this);
         _black = _manualPlayerTemplate.create(BP, this);
@@ -59,16 +62,58 @@ class Game {
     }
 
     /** Return a move or command from the standard input, after prompting if
-     *  PROMPT. */
+     *  PROMPT, or null at the end of the input. */
     String readLine(boolean prompt) {
         if (prompt) {
             prompt();
         }
-        if (_input.hasNextLine()) {
-            return _input.nextLine().trim();
-        } else {
-            return null;
+        try {
+            String line = _inputLines.take();
+            if (line == END_OF_INPUT) {
+                _inputLines.add(END_OF_INPUT);
+                return null;
+            }
+            return line;
+        } catch (InterruptedException excp) {
+            throw new Error("unexpected interrupt");
+        }
+    }
+
+    /** Copy lines from the standard input to _inputLines, followed by
+     *  END_OF_INPUT.  Runs on its own thread, started by play, so that a
+     *  "stop" command can reach a machine player that is thinking; such
+     *  a command is acted on at once rather than queued.  A "stop" typed
+     *  while a manual player is to move is queued as usual. */
+    private void readInput() {
+        while (_input.hasNextLine()) {
+            String line = _input.nextLine().trim();
+            Player thinking = _thinking;
+            if (thinking != null && !thinking.isManual()
+                && line.equalsIgnoreCase("stop")) {
+                stop();
+            } else {
+                _inputLines.add(line);
+            }
         }
+        _inputLines.add(END_OF_INPUT);
+    }
+
+    /** Ask the player currently choosing a move, if any, to make the best
+     *  move it has found at once.  May be called from any thread.  The
+     *  request is also recorded for stopRequested, so that it is not
+     *  lost if the player has not yet begun to search. */
+    void stop() {
+        _stopRequested = true;
+        Player player = _thinking;
+        if (player != null) {
+            player.stop();
+        }
+    }
+
+    /** Return true iff stop has been called since the current player
+     *  began choosing its move. */
+    boolean stopRequested() {
+        return _stopRequested;
     }
 
     /** Print a prompt for a move. */
@@ -106,6 +151,8 @@ class Game {
                 break;
             case "new":
                 _board.clear();
+                _white.newGame();
+                _black.newGame();
                 _playing = true;
                 break;
             case "dump":
@@ -115,11 +162,15 @@ class Game {
                 manualCommand(command.group(2).toLowerCase());
                 break;
             case "auto":
-                autoCommand(command.group(2).toLowerCase());
+                autoCommand(command.group(2).toLowerCase(),
+                            command.group(3).toLowerCase());
                 break;
             case "quit":
                 quit();
                 break;
+            case "stop":
+                stop();
+                break;
             case "seed":
                 seedCommand(command.group(2));
                 break;
@@ -167,6 +218,12 @@ class Game {
         _reporter.reportMove(move);
     }
 
+    /** Report an analysis line by calling reportAnalysis(RANK, DEPTH,
+     *  SCORE, LINE) on my reporter. */
+    void reportAnalysis(int rank, int depth, int score, String line) {
+        _reporter.reportAnalysis(rank, depth, score, line);
+    }
+
     /** Set player PLAYER ("white" or "black") to be a manual player. */
     private void manualCommand(String player) {
         switch (player) {
@@ -181,14 +238,28 @@ class Game {
         }
     }
 
-    /** Set player PLAYER ("white" or "black") to be an automated player. */
-    private void autoCommand(String player) {
+    /** Set player PLAYER ("white" or "black") to be an automated player
+     *  of type TYPE: "alphabeta" (or empty) for the game-tree search, or
+     *  "mcts" for Monte Carlo tree search. */
+    private void autoCommand(String player, String type) {
+        Player template;
+        switch (type) {
+        case "": case "alphabeta":
+            template = _autoPlayerTemplate;
+            break;
+        case "mcts":
+            template = _mctsPlayerTemplate;
+            break;
+        default:
+            error("unknown player type: %s%n", type);
+            return;
+        }
         switch (player) {
         case "white":
-            _white = _autoPlayerTemplate.create(WP, this);
+            _white = template.create(WP, this);
             break;
         case "black":
-            _black = _autoPlayerTemplate.create(BP, this);
+            _black = template.create(BP, this);
             break;
         default:
             error("unknown player: %s%n", player);
@@ -252,6 +323,12 @@ class Game {
     public void play() {
         _board = new Board();
         _playing = true;
+        if (!_reading) {
+            _reading = true;
+            Thread reader = new Thread(this::readInput, "loa-input");
+            reader.setDaemon(true);
+            reader.start();
+        }
 
         while (true) {
             try {
@@ -262,16 +339,32 @@ class Game {
                     _playing = false;
                 }
                 if (_playing) {
+                    Player player;
                     switch (_board.turn()) {
                     case WP:
-                        next = _white.getMove();
+                        player = _white;
                         break;
                     case BP:
-                        next = _black.getMove();
+                        player = _black;
                         break;
                     default:
                         throw new Error("Unreachable statement");
                     }
+                    Player other = player == _white ? _black : _white;
+                    boolean ponder = player.isManual();
+                    if (ponder) {
+                        other.startPondering();
+                    }
+                    _stopRequested = false;
+                    _thinking = player;
+                    try {
+                        next = player.getMove();
+                    } finally {
+                        _thinking = null;
+                        if (ponder) {
+                            other.stopPondering();
+                        }
+                    }
                 } else {
                     next = _nonplayer.getMove();
                 }
@@ -318,6 +411,9 @@ class Game {
 
     /** The current templates for manual and automated players. */
     private Player _autoPlayerTemplate, _manualPlayerTemplate;
+    /** The template for automated players using Monte Carlo tree
+     *  search. */
+    private Player _mctsPlayerTemplate;
 
     /** Player of white pieces. */
     private Player _white;
@@ -344,6 +440,23 @@ class Game {
     /** Input source. */
     private Scanner _input;
 
+    /** Lines read from _input and not yet used. */
+    private final LinkedBlockingQueue<String> _inputLines =
+        new LinkedBlockingQueue<>();
+
+    /** Marks the end of _inputLines.  Compared by identity, so that it
+     *  cannot be confused with any line of input. */
+    private static final String END_OF_INPUT = new String("");
+
+    /** The player whose getMove is in progress, or null. */
+    private volatile Player _thinking;
+
+    /** True iff stop has been called since _thinking was last set. */
+    private volatile boolean _stopRequested;
+
+    /** True iff the thread that runs readInput has been started. */
+    private boolean _reading;
+
     /** Reporter for messages and errors. */
     private Reporter _reporter;
 
@@ -0,0 +1,370 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static loa.Piece.*;
+import static loa.Utils.*;
+
+/** A Monte Carlo tree search for the best move in a position: repeatedly
+ *  descends the tree of positions searched so far, choosing moves by
+ *  UCT (upper confidence bounds applied to trees), adds the children of
+ *  the position reached, finishes the game from one of them with random
+ *  moves, and credits the result to every position on the way.  The move
+ *  played is the one tried most often.  With more than one thread (see
+ *  EngineOptions.threads), each leaf gets that many playouts at once, on
+ *  as many processors as there are (see Playouts.playouts).
+ *
+ *  Nodes are kept in parallel arrays of primitives, indexed by node
+ *  number, whose size is fixed (from EngineOptions.tableSize) when the
+ *  search is created, so that memory stays bounded however long the
+ *  game.  When the tree is full, searches go on without adding nodes.
+ *  Between moves, the subtree for the new position, if any, is kept,
+ *  and the rest released for reuse.  Released subtrees go whole onto a
+ *  free list, and are taken apart one node at a time as nodes are
+ *  allocated, so that neither takes time proportional to the size of
+ *  the tree.
+ *  @author Hankai Xing
+ */
+final class MCTS {
+
+    /** Weight of the exploration term in UCT. */
+    static final double EXPLORATION = 0.7;
+
+    /** Smallest number of nodes in a tree. */
+    static final int MIN_NODES = 1 << 10;
+
+    /** Number of bytes of the node arrays per node. */
+    private static final int NODE_BYTES = 6 * Integer.BYTES;
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** The node number standing for no node. */
+    private static final int NONE = -1;
+
+    /** A search controlled by OPTIONS. */
+    MCTS(EngineOptions options) {
+        _options = options;
+        long capacity = ((long) options.tableSize() << 20) / NODE_BYTES;
+        int size = (int) Math.max(MIN_NODES,
+                                  Math.min(Integer.MAX_VALUE / 2, capacity));
+        _move = new int[size];
+        _parent = new int[size];
+        _firstChild = new int[size];
+        _nextSibling = new int[size];
+        _visits = new int[size];
+        _score = new int[size];
+        _root = _free = NONE;
+        _batch = options.threads();
+    }
+
+    /** Return the best move (as a move code) for the player to move in
+     *  POSITION, in which the game must not be over, or Move.NO_MOVE if
+     *  that player has no legal move.  POSITION is not modified. */
+    int search(Board position) {
+        start();
+        return think(position);
+    }
+
+    /** Begin a new search: start its clock, and clear any request to
+     *  stop.  Must be followed by think. */
+    void start() {
+        _start = System.nanoTime();
+        _budget = _options.timeLimit() * NANOS_PER_MILLI;
+        _stopped = false;
+    }
+
+    /** Perform the search begun by start, as for search(POSITION). */
+    int think(Board position) {
+        reuse(position);
+        _playouts = 0;
+        do {
+            iterate();
+        } while (!checkTime());
+        int best = NONE;
+        for (int c = _firstChild[_root]; c != NONE; c = _nextSibling[c]) {
+            if (best == NONE || _visits[c] > _visits[best]) {
+                best = c;
+            }
+        }
+        if (best == NONE) {
+            position.legalMoves(_moves);
+            return _moves.size() == 0 ? Move.NO_MOVE : _moves.get(0);
+        }
+        debug(1, "mcts: %d playouts, %d root visits, %d nodes,"
+              + " win rate %.3f", _playouts, _visits[_root],
+              nodesInUse(), _score[best] / (2.0 * _visits[best]));
+        return _move[best];
+    }
+
+    /** Stop the current search as soon as possible.  May be called from
+     *  any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return the number of playouts made by the last (or current)
+     *  search. */
+    int playouts() {
+        return _playouts;
+    }
+
+    /** Return the number of playouts through the root of the tree,
+     *  including those made by earlier searches whose trees were
+     *  reused. */
+    int rootVisits() {
+        return _root == NONE ? 0 : _visits[_root];
+    }
+
+    /** Return the largest number of nodes in my tree. */
+    int capacity() {
+        return _move.length;
+    }
+
+    /** Return the number of nodes taken from my arrays since the tree was
+     *  last started afresh, including those since released: an upper
+     *  bound on the size of the tree. */
+    int nodesInUse() {
+        return _used;
+    }
+
+    /** Return true iff the current search should stop, stopping it first
+     *  if its time has run out. */
+    private boolean checkTime() {
+        if (!_stopped && System.nanoTime() - _start > _budget) {
+            _stopped = true;
+        }
+        return _stopped;
+    }
+
+    /** Make the root of my tree the node for POSITION, keeping its
+     *  subtree if POSITION is the root position or follows it by one or
+     *  two moves, and otherwise starting a new tree. */
+    private void reuse(Board position) {
+        int node = _root == NONE ? NONE : find(position);
+        if (node == NONE) {
+            _free = NONE;
+            _used = 0;
+            _root = allocate(Move.NO_MOVE, NONE);
+        } else if (node != _root) {
+            unlink(node);
+            release(_root);
+            _root = node;
+            _parent[node] = NONE;
+        }
+        _work.copyFrom(position);
+    }
+
+    /** Return the node of my tree for POSITION, looking no more than two
+     *  moves below the root, or NONE if there is none.  Assumes _work
+     *  holds the root position. */
+    private int find(Board position) {
+        Board board = _work;
+        if (board.equals(position)) {
+            return _root;
+        }
+        for (int c = _firstChild[_root]; c != NONE; c = _nextSibling[c]) {
+            board.makeMove(_move[c]);
+            if (board.equals(position)) {
+                return c;
+            }
+            for (int g = _firstChild[c]; g != NONE; g = _nextSibling[g]) {
+                board.makeMove(_move[g]);
+                boolean found = board.equals(position);
+                board.retract();
+                if (found) {
+                    return g;
+                }
+            }
+            board.retract();
+        }
+        return NONE;
+    }
+
+    /** Perform one iteration of the search: select a leaf, expand it,
+     *  play out a game from one of its children, and record the
+     *  result.  Moves along the way are made in _work, and retracted
+     *  afterward. */
+    private void iterate() {
+        Board board = _work;
+        int node = _root, made = 0;
+        while (_firstChild[node] != NONE) {
+            node = select(node);
+            board.makeMove(_move[node]);
+            made += 1;
+        }
+        if (!board.gameOver() && expand(node, board)) {
+            node = select(node);
+            board.makeMove(_move[node]);
+            made += 1;
+        }
+        int[] wins = _wins;
+        if (_batch == 1) {
+            Arrays.fill(wins, 0);
+            wins[_kernel.playout(board).ordinal()] = 1;
+        } else {
+            wins = Playouts.playouts(board, _batch);
+        }
+        _playouts += _batch;
+        Piece turn = board.turn();
+        for (; node != NONE; node = _parent[node]) {
+            Piece mover = turn.opposite();
+            _visits[node] += _batch;
+            _score[node] += 2 * wins[mover.ordinal()] + wins[EMP.ordinal()];
+            turn = mover;
+        }
+        for (; made > 0; made -= 1) {
+            board.retract();
+        }
+    }
+
+    /** Return the child of NODE, which has children, with the greatest
+     *  upper confidence bound on the value of its move to the player
+     *  making it, or the first child not yet tried, if any. */
+    private int select(int node) {
+        double logVisits = Math.log(_visits[node]);
+        int best = NONE;
+        double bestBound = Double.NEGATIVE_INFINITY;
+        for (int c = _firstChild[node]; c != NONE; c = _nextSibling[c]) {
+            int n = _visits[c];
+            if (n == 0) {
+                return c;
+            }
+            double bound = _score[c] / (2.0 * n)
+                + EXPLORATION * Math.sqrt(logVisits / n);
+            if (bound > bestBound) {
+                best = c;
+                bestBound = bound;
+            }
+        }
+        return best;
+    }
+
+    /** Add children to NODE, a leaf whose position is BOARD, for each
+     *  legal move in BOARD, returning true iff there were nodes enough
+     *  for them all.  Otherwise, leaves NODE a leaf. */
+    private boolean expand(int node, Board board) {
+        MoveList moves = _moves;
+        board.legalMoves(moves);
+        if (moves.size() == 0 || !reserve(moves.size())) {
+            return false;
+        }
+        for (int k = moves.size() - 1; k >= 0; k -= 1) {
+            int child = allocate(moves.get(k), node);
+            _nextSibling[child] = _firstChild[node];
+            _firstChild[node] = child;
+        }
+        return true;
+    }
+
+    /** Return true iff at least N nodes may be allocated. */
+    private boolean reserve(int n) {
+        int available = _move.length - _used;
+        for (int r = _free; r != NONE && available < n;
+             r = _nextSibling[r]) {
+            available += 1;
+        }
+        return available >= n;
+    }
+
+    /** Return a new node, with no children, for MOVE from PARENT.  Assumes
+     *  a node is available. */
+    private int allocate(int move, int parent) {
+        int node = _free;
+        if (node == NONE) {
+            node = _used;
+            _used += 1;
+        } else {
+            _free = _nextSibling[node];
+            int child = _firstChild[node];
+            if (child != NONE) {
+                int last = child;
+                while (_nextSibling[last] != NONE) {
+                    last = _nextSibling[last];
+                }
+                _nextSibling[last] = _free;
+                _free = child;
+            }
+        }
+        _move[node] = move;
+        _parent[node] = parent;
+        _firstChild[node] = _nextSibling[node] = NONE;
+        _visits[node] = _score[node] = 0;
+        return node;
+    }
+
+    /** Put the subtree rooted at NODE, which is not linked to its parent,
+     *  on the free list. */
+    private void release(int node) {
+        _nextSibling[node] = _free;
+        _free = node;
+    }
+
+    /** Remove NODE from the children of its parent. */
+    private void unlink(int node) {
+        int parent = _parent[node];
+        if (_firstChild[parent] == node) {
+            _firstChild[parent] = _nextSibling[node];
+        } else {
+            int c = _firstChild[parent];
+            while (_nextSibling[c] != node) {
+                c = _nextSibling[c];
+            }
+            _nextSibling[c] = _nextSibling[node];
+        }
+        _nextSibling[node] = NONE;
+    }
+
+    /** Settings controlling my searches. */
+    private final EngineOptions _options;
+
+    /** For each node: the move (a move code) leading to it from its
+     *  parent, its parent, its first child, and its next sibling (or
+     *  NONE).  On the free list, _nextSibling links the released
+     *  subtrees. */
+    private final int[] _move, _parent, _firstChild, _nextSibling;
+
+    /** For each node: the number of playouts through it, and the
+     *  number of half-points (2 for a win, 1 for a tie) they earned for
+     *  the player making its move. */
+    private final int[] _visits, _score;
+
+    /** The root node, and the first released subtree on the free list
+     *  (or NONE). */
+    private int _root, _free;
+
+    /** Number of nodes allocated from the arrays other than from the
+     *  free list. */
+    private int _used;
+
+    /** The position being searched: that at the root, but for the moves
+     *  made during an iteration. */
+    private final Board _work = new Board();
+
+    /** Moves generated while searching. */
+    private final MoveList _moves = new MoveList();
+
+    /** Plays out games on this thread. */
+    private final Playouts _kernel = new Playouts(new SplittableRandom());
+
+    /** Number of playouts from each leaf. */
+    private final int _batch;
+
+    /** Numbers of playouts from the current leaf won by each side,
+     *  indexed by ordinal, with ties at EMP. */
+    private final int[] _wins = new int[Piece.values().length];
+
+    /** Number of playouts in the current search. */
+    private int _playouts;
+
+    /** Start time of the current search, as from System.nanoTime, and
+     *  the time it is allowed, in nanoseconds. */
+    private long _start, _budget;
+
+    /** True iff the current search has been told to stop. */
+    private volatile boolean _stopped;
+
+}
@@ -0,0 +1,63 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** An automated Player that chooses its moves by Monte Carlo tree search
+ *  (see MCTS), keeping its tree from move to move.
+ *  @author Hankai Xing
+ */
+class MCTSPlayer extends Player {
+
+    /** A new MCTSPlayer with no piece or controller (intended to produce
+     *  a template) whose search is controlled by OPTIONS. */
+    MCTSPlayer(EngineOptions options) {
+        this(null, null, options);
+    }
+
+    /** An MCTSPlayer that plays the SIDE pieces in GAME, searching as
+     *  directed by OPTIONS. */
+    MCTSPlayer(Piece side, Game game, EngineOptions options) {
+        super(side, game);
+        _options = options;
+        _search = side == null ? null : new MCTS(options);
+    }
+
+    @Override
+    String getMove() {
+        assert side() == getBoard().turn();
+        _search.start();
+        if (stopRequested()) {
+            _search.stop();
+        }
+        int move = _search.think(getBoard());
+        if (move == Move.NO_MOVE) {
+            throw new IllegalStateException("no legal move for "
+                                            + side().fullName());
+        }
+        Move choice = Move.mv(move);
+        getGame().reportMove(choice);
+        return choice.toString();
+    }
+
+    @Override
+    Player create(Piece piece, Game game) {
+        return new MCTSPlayer(piece, game, _options);
+    }
+
+    @Override
+    boolean isManual() {
+        return false;
+    }
+
+    @Override
+    void stop() {
+        _search.stop();
+    }
+
+    /** Settings controlling my search. */
+    private final EngineOptions _options;
+
+    /** The search I use to choose moves. */
+    private final MCTS _search;
+
+}
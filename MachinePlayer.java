@@ -2,33 +2,42 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-
-
-import java.util.List;
-
-import static loa.Piece.*;
+import static loa.Utils.*;
 
 /** An automated Player.
  *  @author Hankai Xing
  */
 class MachinePlayer extends Player {
 
-    /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
-    /** A magnitude greater than a normal value. */
-    private static final int INFTY = Integer.MAX_VALUE;
-
     /** A new MachinePlayer with no piece or controller (intended to produce
      *  a template). */
     MachinePlayer() {
-        this(null, null);
+        this(new EngineOptions());
+    }
+
+    /** A new MachinePlayer with no piece or controller (intended to produce
+     *  a template) whose search is controlled by OPTIONS. */
+    MachinePlayer(EngineOptions options) {
+        this(null, null, options);
     }
 
-    /** A MachinePlayer that plays the SIDE pieces in GAME. */
+    /** A MachinePlayer that plays the SIDE pieces in GAME, using default
+     *  options. */
     MachinePlayer(Piece side, Game game) {
+        this(side, game, new EngineOptions());
+    }
+
+    /** A MachinePlayer that plays the SIDE pieces in GAME, searching as
+     *  directed by OPTIONS. */
+    MachinePlayer(Piece side, Game game, EngineOptions options) {
         super(side, game);
+        _options = options;
+        _engine = side == null ? null : new Engine(options);
     }
 
     @Override
@@ -36,7 +45,6 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
         choice = searchForMove();
         getGame().reportMove(choice);
         return choice.toString();
@@ -44,7 +52,7 @@ class MachinePlayer extends Player {
 
     @Override
     Player create(Piece piece, Game game) {
-        return new MachinePlayer(piece, game);
+        return new MachinePlayer(piece, game, _options);
     }
 
     @Override
@@ -52,97 +60,190 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
-    private Move searchForMove() {
-        Board work = new Board(getBoard());
-        int value;
-        assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
-        } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
+    @Override
+    void stop() {
+        _engine.stop();
+    }
+
+    @Override
+    void newGame() {
+        _engine.clear();
+        _ponderPosition = null;
+        _ponderMove = Move.NO_MOVE;
+        _searchDepth = 0;
+    }
+
+    @Override
+    void startPondering() {
+        Board board = getBoard();
+        if (_ponderPosition == null || board.key() != _ponderFrom
+            || board.gameOver()) {
+            _ponderPosition = null;
+            return;
         }
-        return _foundMove;
-    }
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        if (depth == 0) {
-            return heuriScore(board);
-        } else if (board.winner() == WP) {
-            return WINNING_VALUE;
-        } else if (board.winner() == BP) {
-            return -WINNING_VALUE;
+        Board position = _ponderPosition;
+        _ponderMove = Move.NO_MOVE;
+        _engine.startPondering();
+        _pondering = WORKER.submit(() -> _engine.think(position));
+    }
+
+    @Override
+    void stopPondering() {
+        if (_pondering != null) {
+            _engine.stop();
+            _ponderMove = await(_pondering);
+            _ponderDepth = _engine.depth();
+            _ponderTime = _engine.elapsed();
+            _pondering = null;
+            if (_ponderDepth == 0) {
+                _ponderMove = Move.NO_MOVE;
+            }
         }
-        int bestScore;
-        if (sense == 1) {
-            bestScore = -INFTY;
+    }
+
+    /** Return the opponent's reply to my last move that my search
+     *  expected (as a move code), or Move.NO_MOVE if none. */
+    int expectedReply() {
+        return _engine.predictedReply();
+    }
+
+    /** Return the depth of the search that chose my last move. */
+    int depth() {
+        return _engine.depth();
+    }
+
+    /** Return a move found by searching from the current position.
+     *  Assumes the game is not over.  The search runs on the worker
+     *  thread, while this thread waits for it to finish or be stopped
+     *  (see stop).  If I pondered on this position (a ponder hit) for
+     *  at least the time allowed for a move, or as deep as my last
+     *  timed search went, returns the move found then without searching
+     *  again.  After a shorter ponder hit, searches on for the rest of
+     *  the time allowed, finding the positions searched while pondering
+     *  in the transposition table.  Throws IllegalStateException if
+     *  there is no legal move, which happens only if the game is over
+     *  (see Board.winner). */
+    private Move searchForMove() {
+        assert side() == getBoard().turn();
+        Board position = getBoard();
+        int move;
+        boolean hit = _ponderMove != Move.NO_MOVE && _ponderPosition != null
+            && position.equals(_ponderPosition);
+        if (hit && (_ponderDepth >= _searchDepth
+                    || _ponderTime >= _engine.budget())) {
+            move = _ponderMove;
+            debug(1, "ponder hit at depth %d", _ponderDepth);
         } else {
-            bestScore = INFTY;
-        }
-        for (Move m: board.legalMoves()) {
-            if (sense == 1) {
-                if (saveMove && _foundMove == null) {
-                    _foundMove = m;
-                }
-                Board tmp = new Board(board);
-                tmp.makeMove(m);
-                int score = findMove(tmp,
-                        depth - 1, false, -sense, alpha, beta);
-                if (score > bestScore) {
-                    if (saveMove) {
-                        _foundMove = m;
-                    }
-                    bestScore = score;
-                }
-                alpha = Math.max(score, alpha);
+            if (hit) {
+                debug(1, "ponder hit at depth %d; searching on",
+                      _ponderDepth);
+                _engine.start(_ponderTime);
             } else {
-                if (saveMove && _foundMove == null) {
-                    _foundMove = m;
-                }
-                Board tmp = new Board(board);
-                tmp.makeMove(m);
-                int score = findMove(tmp,
-                        depth - 1, false, -sense, alpha, beta);
-                if (score < bestScore) {
-                    if (saveMove) {
-                        _foundMove = m;
-                    }
-                    bestScore = score;
-                }
-                beta = Math.min(score, beta);
+                _engine.start();
             }
-            if (alpha >= beta) {
-                break;
+            if (stopRequested()) {
+                _engine.stop();
+            }
+            move = await(WORKER.submit(() -> _engine.think(position)));
+            if (!stopRequested()) {
+                _searchDepth = _engine.depth();
+            }
+        }
+        if (move == Move.NO_MOVE) {
+            throw new IllegalStateException("no legal move for "
+                                            + side().fullName());
+        }
+        if (_options.multiPV() > 1) {
+            for (int k = 0; k < _engine.numLines(); k += 1) {
+                getGame().reportAnalysis(k + 1, _engine.depth(),
+                                         _engine.lineScore(k),
+                                         _engine.lineText(k));
             }
         }
-        return bestScore;
+        preparePondering(position, move);
+        return Move.mv(move);
     }
 
-    /** Return a search depth for the current position. */
-    private int chooseDepth() {
-        return 1;
+    /** Arrange to ponder, if my options call for it, on the position
+     *  that will result from making MOVE in POSITION (the current
+     *  position) followed by the reply my last search expects. */
+    private void preparePondering(Board position, int move) {
+        _ponderPosition = null;
+        _ponderMove = Move.NO_MOVE;
+        int reply = _engine.predictedReply();
+        if (!_options.ponder() || reply == Move.NO_MOVE) {
+            return;
+        }
+        Board next = new Board(position);
+        next.makeMove(move);
+        if (next.gameOver() || !next.isLegal(Move.mv(reply))) {
+            return;
+        }
+        _ponderFrom = next.key();
+        next.makeMove(reply);
+        if (!next.gameOver()) {
+            _ponderPosition = next;
+        }
     }
 
-    /** Calculate my heuriScore with a board BOARD, returns a INT. */
-    private int heuriScore(Board board) {
-        int value;
-        List<Integer> wSideContig = board.getRegionSizes(WP);
-        List<Integer> bSideContig = board.getRegionSizes(BP);
-        value = 100 * bSideContig.size() / wSideContig.size();
-        return value;
+    /** Wait for SEARCH, running on the worker thread, and return its
+     *  result.  If interrupted, stops the search and still waits for it
+     *  to finish. */
+    private int await(Future<Integer> search) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return search.get();
+                } catch (InterruptedException excp) {
+                    interrupted = true;
+                    _engine.stop();
+                }
+            }
+        } catch (ExecutionException excp) {
+            throw new Error("search failed", excp.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** The thread on which all MachinePlayers search.  Only one player
+     *  thinks at a time, so they can share it. */
+    private static final ExecutorService WORKER =
+        Executors.newSingleThreadExecutor((task) -> {
+            Thread thread = new Thread(task, "loa-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /** Settings controlling my search. */
+    private final EngineOptions _options;
+
+    /** The search I use to choose moves. */
+    private final Engine _engine;
+
+    /** The position on which I will ponder, or null if none, and the key
+     *  of the position from which my opponent's expected move leads to
+     *  it. */
+    private Board _ponderPosition;
+    private long _ponderFrom;
+
+    /** The pondering search in progress, or null. */
+    private Future<Integer> _pondering;
+
+    /** The move (a move code) found by pondering on _ponderPosition, or
+     *  NO_MOVE. */
+    private int _ponderMove = Move.NO_MOVE;
+
+    /** The depth reached by pondering on _ponderPosition, and the time
+     *  spent doing so, in nanoseconds. */
+    private int _ponderDepth;
+    private long _ponderTime;
+
+    /** The depth reached by my last search made on my own time and not
+     *  cut short by stop. */
+    private int _searchDepth;
 
 }
@@ -36,7 +36,12 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --hash=(\\d+){0,1} "
+                            + "--time=(\\d+){0,1} --depth=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --nonull{0,1} "
+                            + "--nolmr{0,1} --ponder{0,1} "
+                            + "--multipv=(\\d+){0,1} --eval=(\\w+){0,1} "
+                            + "--weights={0,1} --=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -112,8 +117,51 @@ public class Main {
             }
         }
 
+        EngineOptions engine = getEngineOptions(options);
         return new Game(view, log, reporter, manualPlayer,
-                        new MachinePlayer(), options.contains("--strict"));
+                        new MachinePlayer(engine), new MCTSPlayer(engine),
+                        options.contains("--strict"));
+    }
+
+    /** Return the settings for automated players indicated by OPTIONS. */
+    private static EngineOptions getEngineOptions(CommandArgs options) {
+        EngineOptions engine = new EngineOptions();
+        try {
+            if (options.contains("--hash")) {
+                engine.setTableSize(options.getInt("--hash"));
+            }
+            if (options.contains("--time")) {
+                engine.setTimeLimit(options.getInt("--time"));
+            }
+            if (options.contains("--depth")) {
+                engine.setMaxDepth(options.getInt("--depth"));
+            }
+            if (options.contains("--threads")) {
+                engine.setThreads(options.getInt("--threads"));
+            }
+            engine.setNullMove(!options.contains("--nonull"));
+            engine.setLateMoveReductions(!options.contains("--nolmr"));
+            engine.setPonder(options.contains("--ponder"));
+            if (options.contains("--multipv")) {
+                engine.setMultiPV(options.getInt("--multipv"));
+            }
+            if (options.contains("--eval")) {
+                String name = options.getFirst("--eval");
+                engine.setEvaluator(Evaluator.forName(name));
+            }
+            if (options.contains("--weights")) {
+                if (!(engine.evaluator() instanceof FeatureEvaluator)) {
+                    error(1, "--weights requires --eval=features%n");
+                }
+                String name = options.getFirst("--weights");
+                engine.setEvaluator(FeatureEvaluator.read(name));
+            }
+        } catch (IOException excp) {
+            error(1, "Could not read weights file%n");
+        } catch (IllegalArgumentException excp) {
+            error(1, "%s%n", excp.getMessage());
+        }
+        return engine;
     }
 
     /** Print brief description of the command-line format. */
@@ -51,6 +51,55 @@ final class Move {
         return mv(from, to, false);
     }
 
+    /* Moves may also be encoded as ints, which searches can generate,
+     * store, and undo without creating objects.  Bits 0-5 of the code
+     * hold the index of the starting square, bits 6-11 the index of the
+     * destination, bit 12 is set for a capture, and bits 13-14 hold the
+     * ordinal of the captured Piece (that of EMP if none).  No valid
+     * move has code NO_MOVE. */
+
+    /** A code denoting no move. */
+    static final int NO_MOVE = 0;
+
+    /** Return the code for a move from the square with index FROM to
+     *  that with index TO, capturing CAPTURED (EMP if none). */
+    static int code(int from, int to, Piece captured) {
+        return from | (to << TO_SHIFT)
+            | (captured == EMP ? 0 : CAPTURE_BIT)
+            | (captured.ordinal() << CAPTURED_SHIFT);
+    }
+
+    /** Return the Move denoted by CODE, which must not be NO_MOVE. */
+    static Move mv(int code) {
+        return _moves[fromIndex(code)][toIndex(code)]
+            [isCapture(code) ? 1 : 0];
+    }
+
+    /** Return the index of the starting square of the move coded CODE. */
+    static int fromIndex(int code) {
+        return code & SQUARE_MASK;
+    }
+
+    /** Return the index of the destination of the move coded CODE. */
+    static int toIndex(int code) {
+        return (code >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /** Return true iff CODE denotes a capture. */
+    static boolean isCapture(int code) {
+        return (code & CAPTURE_BIT) != 0;
+    }
+
+    /** Return the piece captured by the move coded CODE (EMP if none). */
+    static Piece captured(int code) {
+        return PIECES[code >>> CAPTURED_SHIFT];
+    }
+
+    /** Return the code for this Move, with EMP as the captured piece. */
+    int code() {
+        return code(_from.index(), _to.index(), EMP);
+    }
+
     /** Return the Square moved from. */
     Square getFrom() {
         return _from;
@@ -73,7 +122,7 @@ final class Move {
 
     /** Return the length of this move (number of squares moved). */
     int length() {
-        return _from.distance(_to);
+        return _length;
     }
 
     @Override
@@ -85,12 +134,28 @@ final class Move {
     private Move(Square from, Square to, boolean capture) {
         assert from.isValidMove(to);
         _from = from; _to = to;
+        _length = from.distance(to);
         _capture = capture;
         _captureMove = _capture ? this : new Move(from, to, true);
     }
 
+    /** Number of bits for a square index in a move code, and a mask
+     *  for them. */
+    private static final int SQUARE_BITS = 6,
+        SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    /** Positions of the destination and captured-piece fields in a move
+     *  code. */
+    private static final int TO_SHIFT = SQUARE_BITS,
+        CAPTURED_SHIFT = 2 * SQUARE_BITS + 1;
+    /** The capture flag in a move code. */
+    private static final int CAPTURE_BIT = 1 << (2 * SQUARE_BITS);
+    /** The Pieces, indexed by ordinal. */
+    private static final Piece[] PIECES = Piece.values();
+
     /** Starting and destination Squares. */
     private final Square _from, _to;
+    /** Number of squares moved. */
+    private final int _length;
     /** True iff this Move records a capture. */
     private final boolean _capture;
     /** When this is not a capture move, the Move with the same getFrom()
@@ -0,0 +1,85 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A growable list of moves in the int encoding described in Move, each
+ *  with an int score used for ordering.  A MoveList is meant to be
+ *  cleared and refilled rather than replaced, so that once it has grown
+ *  to the largest size needed it allocates nothing further.
+ *  @author Hankai Xing
+ */
+final class MoveList {
+
+    /** Initial capacity of a MoveList: more than the number of legal moves
+     *  in almost any position. */
+    static final int INITIAL_CAPACITY = 128;
+
+    /** An empty MoveList. */
+    MoveList() {
+        _moves = new int[INITIAL_CAPACITY];
+        _scores = new int[INITIAL_CAPACITY];
+    }
+
+    /** Return the number of moves in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Return move #K. */
+    int get(int k) {
+        assert k < _size;
+        return _moves[k];
+    }
+
+    /** Return the score of move #K. */
+    int score(int k) {
+        assert k < _size;
+        return _scores[k];
+    }
+
+    /** Set the score of move #K to SCORE. */
+    void setScore(int k, int score) {
+        assert k < _size;
+        _scores[k] = score;
+    }
+
+    /** Append MOVE, with score 0. */
+    void add(int move) {
+        if (_size == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * _size);
+            _scores = Arrays.copyOf(_scores, 2 * _size);
+        }
+        _moves[_size] = move;
+        _scores[_size] = 0;
+        _size += 1;
+    }
+
+    /** Remove all moves. */
+    void clear() {
+        _size = 0;
+    }
+
+    /** Sort my moves in decreasing order of score, keeping moves with
+     *  equal scores in their current order.  Insertion sort suits the
+     *  short lists searches deal with. */
+    void sortByScore() {
+        for (int i = 1; i < _size; i += 1) {
+            int move = _moves[i], score = _scores[i];
+            int j;
+            for (j = i; j > 0 && _scores[j - 1] < score; j -= 1) {
+                _moves[j] = _moves[j - 1];
+                _scores[j] = _scores[j - 1];
+            }
+            _moves[j] = move;
+            _scores[j] = score;
+        }
+    }
+
+    /** The moves, in _moves[0 .. _size-1], and their scores. */
+    private int[] _moves, _scores;
+    /** Number of moves. */
+    private int _size;
+
+}
@@ -34,6 +34,36 @@ public abstract class Player {
         return _game;
     }
 
+    /** Ask me to return from a getMove call in progress as soon as
+     *  possible, with the best move I have found so far.  May be called
+     *  from any thread.  Does nothing by default. */
+    void stop() {
+    }
+
+    /** Return true iff my game has been asked to stop since my current
+     *  getMove call began.  An automated player checks this once its
+     *  search has started, since a call to stop made before then may
+     *  otherwise be lost. */
+    boolean stopRequested() {
+        return _game.stopRequested();
+    }
+
+    /** Forget what I have learned from earlier games, as when a new game
+     *  starts.  Does nothing by default. */
+    void newGame() {
+    }
+
+    /** Use the time while my opponent, a manual player, chooses a move
+     *  in the current position to prepare my own, until stopPondering is
+     *  called.  Does nothing by default. */
+    void startPondering() {
+    }
+
+    /** Stop the work begun by startPondering, if any, waiting for it to
+     *  finish.  Does nothing by default. */
+    void stopPondering() {
+    }
+
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
@@ -0,0 +1,285 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static loa.Bitboards.*;
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** Plays games out from given positions with uniformly random moves, as
+ *  simulation-based searches and statistics need to do very many times.
+ *
+ *  A Playouts keeps its own position as a few primitive fields rather
+ *  than as a Board, and keeps none of a Board's history, keys, or
+ *  incremental counts.  It generates moves into an int array, using
+ *  tables of the destination of every move and the squares it passes
+ *  over, and so allocates nothing during a playout.  After each move,
+ *  it checks only whether the mover's pieces (and, after a capture, the
+ *  opponent's) have become contiguous, first by the cheap test for an
+ *  isolated piece, which rules out most positions.  Each Playouts has
+ *  its own random numbers, and must be used by only one thread at a
+ *  time; the static playouts method spreads its work over one Playouts
+ *  per processor.
+ *  @author Hankai Xing
+ */
+final class Playouts {
+
+    /** Number of directions of movement. */
+    private static final int NUM_DIRS = 8;
+
+    /** A bound on the number of legal moves in any position: at most one
+     *  in each direction from each square.  Positions set up by hand may
+     *  have many more pieces, and so moves, than the initial one. */
+    private static final int MAX_MOVES = NUM_SQUARES * NUM_DIRS;
+
+    /** For square index K and direction DIR, the squares on the line
+     *  through K in direction DIR (the same as for DIR + NUM_DIRS / 2),
+     *  at index K * NUM_DIRS + DIR. */
+    private static final long[] LINES = new long[NUM_SQUARES * NUM_DIRS];
+
+    /** Number of distances in TARGETS and PATHS for each line: 0 through
+     *  BOARD_SIZE, the most pieces a line may hold. */
+    private static final int DISTANCES = BOARD_SIZE + 1;
+
+    /** For square index K, direction DIR, and distance D, 0 <= D <=
+     *  BOARD_SIZE, the index of the square D squares from K in direction
+     *  DIR (or -1 if D is 0 or there is none), and the squares strictly
+     *  between the two, at index (K * NUM_DIRS + DIR) * DISTANCES + D. */
+    private static final int[] TARGETS =
+        new int[NUM_SQUARES * NUM_DIRS * DISTANCES];
+    private static final long[] PATHS =
+        new long[NUM_SQUARES * NUM_DIRS * DISTANCES];
+
+    static {
+        for (Square from : ALL_SQUARES) {
+            for (int dir = 0; dir < NUM_DIRS; dir += 1) {
+                int line = from.index() * NUM_DIRS + dir;
+                LINES[line] = lineMask(from.line(dir));
+                Square[] ray = from.ray(dir);
+                for (int d = 0; d < DISTANCES; d += 1) {
+                    int k = line * DISTANCES + d;
+                    if (d == 0 || d > ray.length) {
+                        TARGETS[k] = -1;
+                    } else {
+                        TARGETS[k] = ray[d - 1].index();
+                        PATHS[k] = from.between(ray[d - 1]);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Number of threads used by playouts(POSITION, N). */
+    static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** A Playouts whose random moves come from RANDOM. */
+    Playouts(SplittableRandom random) {
+        _random = random;
+    }
+
+    /** Play N random games from POSITION, which is not modified, dividing
+     *  them among THREADS threads, and return the numbers won by each
+     *  side, indexed by the ordinal of the winning Piece, with ties
+     *  counted at EMP.ordinal(). */
+    static int[] playouts(Board position, int n) {
+        long black = position.pieces(BP), white = position.pieces(WP);
+        Piece turn = position.turn();
+        int made = position.movesMade(), limit = position.moveLimit();
+        int tasks = Math.max(1, Math.min(n, THREADS));
+        List<Future<int[]>> results = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i += 1) {
+            int count = n / tasks + (i < n % tasks ? 1 : 0);
+            results.add(POOL.submit(() -> {
+                int[] counts = new int[Piece.values().length];
+                Playouts kernel = KERNELS.get();
+                for (int k = 0; k < count; k += 1) {
+                    kernel.load(black, white, turn, made, limit);
+                    counts[kernel.play().ordinal()] += 1;
+                }
+                return counts;
+            }));
+        }
+        int[] counts = new int[Piece.values().length];
+        boolean interrupted = false;
+        for (Future<int[]> result : results) {
+            while (true) {
+                try {
+                    int[] partial = result.get();
+                    for (int k = 0; k < counts.length; k += 1) {
+                        counts[k] += partial[k];
+                    }
+                    break;
+                } catch (InterruptedException excp) {
+                    interrupted = true;
+                } catch (ExecutionException excp) {
+                    throw new Error("playout failed", excp.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return counts;
+    }
+
+    /** Play one random game from POSITION, which is not modified, and
+     *  return the winner, or EMP for a tie. */
+    Piece playout(Board position) {
+        load(position.pieces(BP), position.pieces(WP), position.turn(),
+             position.movesMade(), position.moveLimit());
+        return play();
+    }
+
+    /** Set MOVES to the legal moves in POSITION, as move codes without
+     *  captures, in the order in which I generate them.  For testing. */
+    void legalMoves(Board position, MoveList moves) {
+        load(position.pieces(BP), position.pieces(WP), position.turn(),
+             position.movesMade(), position.moveLimit());
+        moves.clear();
+        int n = generate();
+        for (int i = 0; i < n; i += 1) {
+            moves.add(_moves[i]);
+        }
+    }
+
+    /** Set my position to one with black and white pieces BLACK and WHITE,
+     *  TURN to move, MADE moves made, and a move limit of LIMIT. */
+    private void load(long black, long white, Piece turn, int made,
+                      int limit) {
+        _black = black;
+        _white = white;
+        _blackToMove = turn == BP;
+        _movesMade = made;
+        _moveLimit = limit;
+    }
+
+    /** Finish the game from my position with random moves, and return the
+     *  winner, or EMP for a tie.  As in Board.winner, a side with no
+     *  legal move on its turn loses. */
+    private Piece play() {
+        boolean black = contiguous(_black), white = contiguous(_white);
+        while (true) {
+            if (black && white) {
+                return _blackToMove ? WP : BP;
+            } else if (black) {
+                return BP;
+            } else if (white) {
+                return WP;
+            } else if (_movesMade >= _moveLimit) {
+                return EMP;
+            }
+            int n = generate();
+            if (n == 0) {
+                return _blackToMove ? WP : BP;
+            }
+            _movesMade += 1;
+            _blackToMove = !_blackToMove;
+            int move = _moves[_random.nextInt(n)];
+            long from = bit(Move.fromIndex(move)),
+                to = bit(Move.toIndex(move));
+            if (_blackToMove) {
+                _white ^= from | to;
+                boolean capture = (_black & to) != 0;
+                _black &= ~to;
+                white = contiguous(_white);
+                black = capture && contiguous(_black);
+            } else {
+                _black ^= from | to;
+                boolean capture = (_white & to) != 0;
+                _white &= ~to;
+                black = contiguous(_black);
+                white = capture && contiguous(_white);
+            }
+        }
+    }
+
+    /** Set the first elements of _moves to the codes of the legal moves in
+     *  my position, and return their number. */
+    private int generate() {
+        long mine = _blackToMove ? _black : _white,
+            theirs = _blackToMove ? _white : _black,
+            occupied = mine | theirs;
+        int n = 0;
+        for (long m = mine; m != 0; m &= m - 1) {
+            int from = first(m);
+            for (int dir = 0; dir < NUM_DIRS / 2; dir += 1) {
+                int line = from * NUM_DIRS + dir,
+                    dist = size(occupied & LINES[line]);
+                n = add(from, line * DISTANCES + dist, mine, theirs, n);
+                n = add(from, (line + NUM_DIRS / 2) * DISTANCES + dist,
+                        mine, theirs, n);
+            }
+        }
+        return n;
+    }
+
+    /** Add the move from the square with index FROM described by entry K
+     *  of TARGETS and PATHS to _moves as _moves[N], if it is legal for the
+     *  side with pieces MINE against THEIRS, returning the new number of
+     *  moves. */
+    private int add(int from, int k, long mine, long theirs, int n) {
+        int to = TARGETS[k];
+        if (to < 0 || (mine & bit(to)) != 0 || (theirs & PATHS[k]) != 0) {
+            return n;
+        }
+        _moves[n] = Move.code(from, to, EMP);
+        return n + 1;
+    }
+
+    /** Return true iff the set of pieces PIECES is non-empty and
+     *  connected, as for Board.piecesContiguous.  A set of two or more
+     *  pieces is not connected if any piece is isolated. */
+    private static boolean contiguous(long pieces) {
+        return pieces != 0
+            && ((pieces & (pieces - 1)) == 0
+                || (adjacent(pieces) & pieces) == pieces
+                   && region(pieces & -pieces, pieces) == pieces);
+    }
+
+    /** Return a new source of random numbers, independent of those
+     *  returned before. */
+    private static synchronized SplittableRandom newRandom() {
+        return SEEDS.split();
+    }
+
+    /** Source of the random numbers of the Playouts used by
+     *  playouts(POSITION, N). */
+    private static final SplittableRandom SEEDS = new SplittableRandom();
+
+    /** The Playouts of each thread running playouts(POSITION, N). */
+    private static final ThreadLocal<Playouts> KERNELS =
+        ThreadLocal.withInitial(() -> new Playouts(newRandom()));
+
+    /** The threads running playouts(POSITION, N). */
+    private static final ExecutorService POOL =
+        Executors.newFixedThreadPool(THREADS, (task) -> {
+            Thread thread = new Thread(task, "loa-playout");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /** Source of my random moves. */
+    private final SplittableRandom _random;
+
+    /** Legal moves in my position (see generate). */
+    private final int[] _moves = new int[MAX_MOVES];
+
+    /** The black and white pieces of my position. */
+    private long _black, _white;
+
+    /** True iff black is to move in my position. */
+    private boolean _blackToMove;
+
+    /** Moves made in my position, and the limit at which the game is
+     *  tied. */
+    private int _movesMade, _moveLimit;
+
+}
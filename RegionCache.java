@@ -0,0 +1,82 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** A fixed-size table mapping the set of squares occupied by one color's
+ *  pieces to a summary of their connectivity: the number of regions and
+ *  the size of the largest.  Connectivity depends only on one color's
+ *  pieces, and searches meet the same set of one color's pieces under many
+ *  different arrangements of the other's, so summaries are worth keeping.
+ *
+ *  The table may be shared among threads without locking.  Each slot
+ *  holds the summary and the exclusive or of the summary with its key,
+ *  each a single long.  A reader accepts a slot only if the two agree
+ *  with the key it is looking for, so a slot half-written by another
+ *  thread reads as a miss rather than as a wrong answer.  A new entry
+ *  simply replaces whatever occupied its slot.
+ *  @author Hankai Xing
+ */
+final class RegionCache {
+
+    /** A value returned by probe to indicate a miss. */
+    static final long MISS = -1;
+
+    /** A table with 2**LOGSIZE slots. */
+    RegionCache(int logSize) {
+        _shift = Long.SIZE - logSize;
+        _keys = new long[1 << logSize];
+        _summaries = new long[1 << logSize];
+    }
+
+    /** Return the summary stored for the set of squares PIECES, or MISS if
+     *  there is none. */
+    long probe(long pieces) {
+        int k = slot(pieces);
+        long summary = _summaries[k];
+        if ((_keys[k] ^ summary) == pieces && (summary & VALID) != 0) {
+            return summary;
+        }
+        return MISS;
+    }
+
+    /** Record that PIECES forms COUNT regions, the largest having LARGEST
+     *  squares. */
+    void store(long pieces, int count, int largest) {
+        int k = slot(pieces);
+        long summary = VALID | count | ((long) largest << FIELD_BITS);
+        _summaries[k] = summary;
+        _keys[k] = pieces ^ summary;
+    }
+
+    /** Return the number of regions recorded in SUMMARY, a non-MISS value
+     *  returned by probe. */
+    static int count(long summary) {
+        return (int) (summary & FIELD_MASK);
+    }
+
+    /** Return the size of the largest region recorded in SUMMARY, a
+     *  non-MISS value returned by probe. */
+    static int largest(long summary) {
+        return (int) ((summary >>> FIELD_BITS) & FIELD_MASK);
+    }
+
+    /** Return the slot for PIECES. */
+    private int slot(long pieces) {
+        return (int) ((pieces * HASH_MULTIPLIER) >>> _shift);
+    }
+
+    /** Multiplier for Fibonacci hashing of keys. */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    /** Width of each field of a summary, and a mask for one field. */
+    private static final int FIELD_BITS = 8, FIELD_MASK = 0xff;
+    /** Flag set in every stored summary, so that an empty slot never
+     *  matches. */
+    private static final long VALID = 1L << (Long.SIZE - 1);
+
+    /** Number of bits to shift a hashed key to get its slot. */
+    private final int _shift;
+    /** Per slot, the summary stored there and its exclusive or with the
+     *  key. */
+    private final long[] _keys, _summaries;
+
+}
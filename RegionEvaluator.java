@@ -0,0 +1,20 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Piece.*;
+
+/** The original evaluation: the ratio of the numbers of black and white
+ *  regions.  It needs the regions themselves, and so is slower than
+ *  FeatureEvaluator, but counts regions exactly.
+ *  @author Hankai Xing
+ */
+class RegionEvaluator implements Evaluator {
+
+    @Override
+    public int score(Board board) {
+        int score = 100 * board.regionCount(BP) / board.regionCount(WP);
+        return board.turn() == WP ? score : -score;
+    }
+
+}
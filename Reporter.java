@@ -18,5 +18,10 @@ interface Reporter {
     /** Display MOVE as needed. */
     void reportMove(Move move);
 
+    /** Display line number RANK (1 for the best) of an analysis of the
+     *  current position to DEPTH: its value SCORE (positive favoring
+     *  white) and its moves, LINE. */
+    void reportAnalysis(int rank, int depth, int score, String line);
+
 }
 
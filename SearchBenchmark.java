@@ -0,0 +1,153 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Measures how parallel search scales.  For each of several thread
+ *  counts, searches a fixed set of positions to a fixed depth, with no
+ *  time limit, and reports the total time taken, the nodes searched per
+ *  second, and the speedup over one thread.  Then reports the time each
+ *  evaluator (see Evaluator.forName) takes per position to score a
+ *  batch of positions from random games.  Usage:
+ *      java loa.SearchBenchmark [ DEPTH [ THREADS ... ] ]
+ *  DEPTH defaults to DEFAULT_DEPTH, and THREADS to 1, 2, 4, 8, and 16.
+ *  @author Hankai Xing
+ */
+class SearchBenchmark {
+
+    /** Default search depth. */
+    static final int DEFAULT_DEPTH = 5;
+
+    /** Default thread counts. */
+    static final int[] DEFAULT_THREADS = { 1, 2, 4, 8, 16 };
+
+    /** Number of positions searched, and the numbers of random moves
+     *  after the initial position used to produce them. */
+    static final int[] PLIES = { 0, 4, 8, 12, 16, 20 };
+
+    /** Seed for the random games producing the positions. */
+    static final long SEED = 61;
+
+    /** Names of the evaluators timed. */
+    static final String[] EVALUATORS = { "features", "regions" };
+
+    /** Number of positions in the batch scored by each evaluator, and the
+     *  number of times it is scored. */
+    static final int EVAL_BATCH = 1024, EVAL_ROUNDS = 1000;
+
+    /** Run the benchmark as directed by ARGS (see above). */
+    public static void main(String... args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0])
+            : DEFAULT_DEPTH;
+        int[] threads = DEFAULT_THREADS;
+        if (args.length > 1) {
+            threads = new int[args.length - 1];
+            for (int i = 1; i < args.length; i += 1) {
+                threads[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        List<Board> positions = positions();
+        System.out.printf("%d positions, depth %d, %d processors%n",
+                          positions.size(), depth,
+                          Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %10s %12s %10s %8s%n",
+                          "threads", "ms", "nodes", "knodes/s", "speedup");
+        run(positions, depth, 1, null);
+        double baseTime = 0;
+        for (int n : threads) {
+            long[] nodes = new long[1];
+            double millis = run(positions, depth, n, nodes) / 1e6;
+            if (baseTime == 0) {
+                baseTime = millis;
+            }
+            System.out.printf("%8d %10.0f %12d %10.0f %8.2f%n",
+                              n, millis, nodes[0], nodes[0] / millis,
+                              baseTime / millis);
+        }
+        Board[] batch = batch(EVAL_BATCH);
+        System.out.printf("%n%10s %10s%n", "evaluator", "ns/pos");
+        for (String name : EVALUATORS) {
+            Evaluator eval = Evaluator.forName(name);
+            evaluate(eval, batch, EVAL_ROUNDS);
+            double nanos = evaluate(eval, batch, EVAL_ROUNDS);
+            System.out.printf("%10s %10.1f%n", name,
+                              nanos / EVAL_ROUNDS / batch.length);
+        }
+    }
+
+    /** Score BATCH with EVAL ROUNDS times, using the batch method, and
+     *  return the time taken in nanoseconds. */
+    static long evaluate(Evaluator eval, Board[] batch, int rounds) {
+        int[] scores = new int[batch.length];
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r += 1) {
+            eval.score(batch, scores);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Search each of POSITIONS to DEPTH using THREADS threads and a
+     *  fresh engine, returning the total time taken in nanoseconds and
+     *  setting NODES[0] to the total number of nodes searched, if NODES
+     *  is not null.  The first call also serves to warm up the JVM. */
+    static long run(List<Board> positions, int depth, int threads,
+                    long[] nodes) {
+        EngineOptions options = new EngineOptions();
+        options.setThreads(threads);
+        options.setMaxDepth(depth);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        long elapsed = 0, total = 0;
+        for (Board position : positions) {
+            Engine engine = new Engine(options);
+            long start = System.nanoTime();
+            engine.search(position);
+            elapsed += System.nanoTime() - start;
+            total += engine.nodes();
+        }
+        if (nodes != null) {
+            nodes[0] = total;
+        }
+        return elapsed;
+    }
+
+    /** Return N positions from random games, for timing evaluators. */
+    static Board[] batch(int n) {
+        Random random = new Random(SEED);
+        Board[] result = new Board[n];
+        Board board = new Board();
+        MoveList moves = new MoveList();
+        for (int k = 0; k < n; k += 1) {
+            board.legalMoves(moves);
+            board.makeMove(moves.get(random.nextInt(moves.size())));
+            if (board.gameOver()) {
+                board = new Board();
+            }
+            result[k] = new Board(board);
+        }
+        return result;
+    }
+
+    /** Return the benchmark positions: those reached after each number of
+     *  moves in PLIES of a random game from the initial position. */
+    static List<Board> positions() {
+        Random random = new Random(SEED);
+        List<Board> result = new ArrayList<>();
+        Board board = new Board();
+        MoveList moves = new MoveList();
+        for (int ply = 0; result.size() < PLIES.length; ply += 1) {
+            if (ply == PLIES[result.size()]) {
+                result.add(new Board(board));
+            }
+            board.legalMoves(moves);
+            board.makeMove(moves.get(random.nextInt(moves.size())));
+            if (board.gameOver()) {
+                board = new Board();
+            }
+        }
+        return result;
+    }
+
+}
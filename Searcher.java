@@ -0,0 +1,738 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Piece.*;
+import static loa.Square.NUM_SQUARES;
+import static loa.Utils.*;
+import static loa.TranspositionTable.*;
+
+/** One thread's share of an Engine's search: an iteratively deepening
+ *  alpha-beta search on a private working board, sharing its Engine's
+ *  transposition table, deadline, and stop flag with the other Searchers.
+ *  @author Hankai Xing
+ */
+final class Searcher {
+
+    /** The greatest number of plies by which a quiescence search may
+     *  extend the search beyond its horizon. */
+    static final int MAX_QUIESCENCE_PLIES = 16;
+
+    /** The maximum number of plies from the root that a search may
+     *  reach. */
+    static final int MAX_PLY =
+        EngineOptions.MAX_DEPTH + MAX_QUIESCENCE_PLIES;
+
+    /** A position-score magnitude indicating a win in the current
+     *  position.  A win PLY moves ahead scores WINNING_VALUE - PLY, so
+     *  that quicker wins are preferred. */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 20 - MAX_PLY;
+    /** A magnitude greater than a normal value. */
+    static final int INFTY = Integer.MAX_VALUE;
+
+    /** The half-width of the first aspiration window around the previous
+     *  iteration's value, and the depth from which windows are used.
+     *  The window doubles on each failure, and becomes infinite once it
+     *  exceeds MAX_WINDOW. */
+    private static final int
+        ASPIRATION_WINDOW = 25,
+        ASPIRATION_DEPTH = 3,
+        MAX_WINDOW = 800;
+
+    /** Move-ordering scores of the previous principal variation's move,
+     *  the transposition table's move, captures, and the first killer
+     *  move.  History scores are kept below MAX_HISTORY, so that these
+     *  all come first. */
+    private static final int
+        PV_SCORE = 1 << 30,
+        TT_SCORE = PV_SCORE - 1,
+        CAPTURE_SCORE = 1 << 29,
+        KILLER_SCORE = 1 << 28,
+        MAX_HISTORY = KILLER_SCORE - 2;
+
+    /** Null-move pruning: the least depth at which it is tried, the
+     *  depth reduction of the null-move search, and the greatest number
+     *  of regions the side to move may have for it not to be tried.
+     *  A side about to connect is the likeliest to be in zugzwang, where
+     *  passing would be better than any move. */
+    private static final int
+        NULL_MOVE_DEPTH = 3,
+        NULL_MOVE_REDUCTION = 2,
+        NULL_MOVE_MIN_REGIONS = 2;
+
+    /** Late-move reductions: the least depth at which they are made, the
+     *  number of moves searched before any are reduced, and the number
+     *  after which the reduction is increased by 1. */
+    private static final int
+        LMR_DEPTH = 3,
+        LMR_MOVES = 3,
+        LMR_LATE_MOVES = 12;
+
+    /** The most by which a capture is assumed to be able to raise the
+     *  static value, for delta pruning in quiesce. */
+    private static final int DELTA_MARGIN = 150;
+
+    /** The most regions from which one move can connect all of a side's
+     *  pieces, so that quiesce looks for such moves.  The piece moved
+     *  touches at most four regions where it lands (its neighbors hold at
+     *  most four pieces no two of which are adjacent), merging them into
+     *  one, and removes one more if it leaves a region of its own. */
+    private static final int MAX_CONNECTING_REGIONS = 5;
+
+    /** The search checks the time once per TIME_CHECK_MASK + 1 nodes. */
+    private static final int TIME_CHECK_MASK = (1 << 10) - 1;
+
+    /** Searcher number ID (0 for the main thread) for ENGINE. */
+    Searcher(Engine engine, int id) {
+        _engine = engine;
+        _table = engine.table();
+        _id = id;
+        _moveLists = new MoveList[MAX_PLY + 1];
+        for (int ply = 0; ply <= MAX_PLY; ply += 1) {
+            _moveLists[ply] = new MoveList();
+        }
+    }
+
+    /** Search POSITION by iterative deepening, starting at depth
+     *  FIRSTDEPTH, until my engine is stopped or the maximum depth in its
+     *  options is reached.  Afterwards, bestMove, depth, and score
+     *  describe the deepest iteration that finished.  The main Searcher
+     *  (number 0) also stops once an iteration finishes after half of
+     *  the time allowed has passed, or finds a forced win; the others
+     *  keep going, filling the shared table, until told to stop.  If
+     *  POSITION has no legal moves, bestMove is NO_MOVE. */
+    void run(Board position, int firstDepth) {
+        Board work = _work;
+        work.copyFrom(position);
+        int sense = work.turn() == WP ? 1 : -1;
+        EngineOptions options = _engine.options();
+        int lines = _id == 0 ? options.multiPV() : 1;
+        _evaluator = options.evaluator();
+        _nullMove = options.nullMove();
+        _lateMoveReductions = options.lateMoveReductions();
+        _aborted = false;
+        _nodes = 0;
+        _numLines = 0;
+        _bestMove = _foundMove = Move.NO_MOVE;
+        _depth = _score = 0;
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = Move.NO_MOVE;
+        }
+        ageHistory();
+        for (int depth = firstDepth; depth <= options.maxDepth();
+             depth += 1) {
+            int found = searchLines(work, depth, lines);
+            if (_aborted) {
+                if (_bestMove == Move.NO_MOVE && found > 0) {
+                    _bestMove = _newLines[0].move;
+                }
+                break;
+            }
+            if (found == 0) {
+                break;
+            }
+            Line[] done = _newLines;
+            _newLines = _lines;
+            _lines = done;
+            _numLines = found;
+            Line best = _lines[0];
+            _bestMove = best.move;
+            _depth = depth;
+            _score = sense * best.score;
+            if (_id == 0) {
+                debug(1, "depth %d score %d nodes %d pv %s", depth,
+                      best.score, _engine.nodes(),
+                      pvString(best.pv, best.length));
+                if (isWin(best.score) || _engine.pastSoftLimit()) {
+                    break;
+                }
+            }
+        }
+        if (_bestMove == Move.NO_MOVE) {
+            _bestMove = _foundMove;
+        }
+        if (_bestMove == Move.NO_MOVE) {
+            MoveList moves = _moveLists[0];
+            work.legalMoves(moves);
+            if (moves.size() > 0) {
+                _bestMove = moves.get(0);
+            }
+        }
+    }
+
+    /** Search the root position BOARD to DEPTH for its best NUMLINES
+     *  moves, each with its principal variation, leaving them in
+     *  _newLines in decreasing order of value, and return the number
+     *  found (fewer if there are fewer legal moves).  Line K is found by
+     *  a search of the root that excludes the moves of lines 0 to K-1,
+     *  so that each gets an exact value; all use the same transposition
+     *  table, so that lines after the first are cheap.  Each line's
+     *  search follows, and starts with a window around the value of,
+     *  the line of the same rank in the last iteration.  Stops early if
+     *  the search is aborted. */
+    private int searchLines(Board board, int depth, int numLines) {
+        int found;
+        _numExcluded = 0;
+        for (found = 0; found < numLines; found += 1) {
+            int guess;
+            if (found < _numLines) {
+                Line prev = _lines[found];
+                _prevPVLength = prev.length;
+                System.arraycopy(prev.pv, 0, _prevPV, 0, prev.length);
+                guess = prev.score;
+            } else {
+                _prevPVLength = 0;
+                guess = -INFTY;
+            }
+            _foundMove = Move.NO_MOVE;
+            int value = searchRoot(board, depth, guess);
+            if (_aborted || _foundMove == Move.NO_MOVE) {
+                break;
+            }
+            Line line = _newLines[found];
+            line.move = _foundMove;
+            line.score = value;
+            line.length = _pvLength[0];
+            System.arraycopy(_pv[0], 0, line.pv, 0, line.length);
+            _excluded[_numExcluded] = _foundMove;
+            _numExcluded += 1;
+        }
+        _numExcluded = 0;
+        for (int i = 1; i < found; i += 1) {
+            Line line = _newLines[i];
+            int j;
+            for (j = i; j > 0 && _newLines[j - 1].score < line.score;
+                 j -= 1) {
+                _newLines[j] = _newLines[j - 1];
+            }
+            _newLines[j] = line;
+        }
+        return found;
+    }
+
+    /** Return the best move (as a move code) found by the last run, or
+     *  NO_MOVE if its position had no legal moves. */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the reply to bestMove() that the last run expects, as a
+     *  move code, or NO_MOVE if it has none. */
+    int predictedReply() {
+        if (_numLines == 0 || _lines[0].length < 2) {
+            return Move.NO_MOVE;
+        }
+        return _lines[0].pv[1];
+    }
+
+    /** Return the number of lines (see EngineOptions.multiPV) found by
+     *  the deepest iteration finished by the last run. */
+    int numLines() {
+        return _numLines;
+    }
+
+    /** Return the value of line K of the last run (positive favoring
+     *  white). */
+    int lineScore(int k) {
+        assert k < _numLines;
+        return _work.turn() == WP ? _lines[k].score : -_lines[k].score;
+    }
+
+    /** Return the moves of line K of the last run, as text. */
+    String lineText(int k) {
+        assert k < _numLines;
+        return pvString(_lines[k].pv, _lines[k].length);
+    }
+
+    /** Return the depth of the deepest iteration finished by the last
+     *  run. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the value found by that iteration (positive favoring
+     *  white). */
+    int score() {
+        return _score;
+    }
+
+    /** Return the number of positions visited by the last (or current)
+     *  run.  Only an estimate while the run is in progress. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Search the root position BOARD to DEPTH and return its value for
+     *  the player to move, starting with an aspiration window around
+     *  GUESS, the previous iteration's value, and widening it on the
+     *  side that fails until the value falls inside it.  A GUESS of
+     *  -INFTY calls for a full window. */
+    private int searchRoot(Board board, int depth, int guess) {
+        if (depth < ASPIRATION_DEPTH || isWin(guess)) {
+            return findMove(board, depth, 0, true, -INFTY, INFTY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = guess - delta, beta = guess + delta;
+        while (true) {
+            int value = findMove(board, depth, 0, true, alpha, beta);
+            if (_aborted || value > alpha && value < beta
+                || value <= alpha && alpha == -INFTY
+                || value >= beta && beta == INFTY) {
+                return value;
+            }
+            delta *= 2;
+            boolean full = isWin(value) || delta > MAX_WINDOW;
+            if (value <= alpha) {
+                alpha = full ? -INFTY : value - delta;
+            } else {
+                beta = full ? INFTY : value + delta;
+            }
+        }
+    }
+
+    /** Find a move from position BOARD and return its value for the
+     *  player to move, recording the move found in _foundMove iff PLY is
+     *  0 (BOARD is the root position) and the move's value exceeds
+     *  ALPHA.  The value returned is exact if it lies strictly between
+     *  ALPHA and BETA; otherwise, it is an upper bound if <= ALPHA and a
+     *  lower bound if >= BETA.  Searches up to DEPTH levels.  Searching
+     *  at level 0 only follows captures and winning moves (see quiesce)
+     *  and does not set _foundMove. If the game is over on BOARD, does
+     *  not set _foundMove, and returns the value of the result: 0 for a
+     *  draw at the move limit, and a loss for a player with no legal
+     *  move (see Board.winner).  Moves are made and retracted on BOARD itself, which is unchanged
+     *  on return.
+     *
+     *  This is a principal variation search: the first move is searched
+     *  with the full window, and the rest with a null window that only
+     *  shows that they are no better, re-searching those that are.
+     *  Results are looked up in and recorded in the transposition
+     *  table; except at the root, a stored result that is deep enough
+     *  and settles the node against ALPHA and BETA is returned at once.
+     *  FOLLOWPV indicates that the moves leading to BOARD are those of
+     *  the previous principal variation, whose next move is then tried
+     *  first.  Sets _pv[PLY] to the principal variation found.  If the
+     *  engine is stopped or runs out of time, sets _aborted and returns
+     *  a meaningless value without recording anything. */
+    private int findMove(Board board, int depth, int ply, boolean followPV,
+                         int alpha, int beta) {
+        _pvLength[ply] = ply;
+        if (visitNode()) {
+            return 0;
+        }
+        Piece winner = board.winner();
+        if (winner == board.turn()) {
+            return WINNING_VALUE - ply;
+        } else if (winner == board.turn().opposite()) {
+            return -WINNING_VALUE + ply;
+        } else if (winner == EMP) {
+            return 0;
+        } else if (depth <= 0) {
+            return quiesce(board, ply, MAX_QUIESCENCE_PLIES, alpha, beta);
+        }
+        long entry = _table.probe(board.key());
+        if (ply > 0 && entry != MISS
+            && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            switch (bound(entry)) {
+            case EXACT:
+                return score;
+            case LOWER:
+                if (score >= beta) {
+                    return score;
+                }
+                break;
+            default:
+                if (score <= alpha) {
+                    return score;
+                }
+                break;
+            }
+        }
+        if (_nullMove && ply > 0 && beta - alpha == 1
+            && depth >= NULL_MOVE_DEPTH
+            && board.lastMove() != Move.NO_MOVE
+            && board.regionCount(board.turn()) > NULL_MOVE_MIN_REGIONS
+            && !isWin(beta)) {
+            board.makeNullMove();
+            int score = -findMove(board, depth - 1 - NULL_MOVE_REDUCTION,
+                                  ply + 1, false, -beta, -beta + 1);
+            board.retract();
+            if (_aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                return isWin(score) ? beta : score;
+            }
+        }
+        int alpha0 = alpha;
+        int bestMove = Move.NO_MOVE;
+        int bestScore = -INFTY;
+        MoveList moves = _moveLists[ply];
+        board.legalMoves(moves);
+        followPV = followPV && ply < _prevPVLength;
+        orderMoves(moves, ply, followPV ? _prevPV[ply] : Move.NO_MOVE,
+                   entry == MISS ? Move.NO_MOVE : move(entry));
+        int searched = 0;
+        for (int i = 0; i < moves.size(); i += 1) {
+            int m = moves.get(i);
+            if (ply == 0 && excluded(m)) {
+                continue;
+            }
+            boolean onPV = followPV && m == _prevPV[ply];
+            int score;
+            board.makeMove(m);
+            searched += 1;
+            if (searched == 1) {
+                score = -findMove(board, depth - 1, ply + 1, onPV,
+                                  -beta, -alpha);
+            } else {
+                int reduction = lateMoveReduction(moves, i, depth);
+                score = -findMove(board, depth - 1 - reduction, ply + 1,
+                                  onPV, -alpha - 1, -alpha);
+                if (reduction > 0 && score > alpha && !_aborted) {
+                    score = -findMove(board, depth - 1, ply + 1, onPV,
+                                      -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta && !_aborted) {
+                    score = -findMove(board, depth - 1, ply + 1, onPV,
+                                      -beta, -alpha);
+                }
+            }
+            board.retract();
+            if (_aborted) {
+                break;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = m;
+                if (score > alpha) {
+                    alpha = score;
+                    if (ply == 0) {
+                        _foundMove = m;
+                    }
+                    updatePV(ply, m);
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(m)) {
+                            recordCutoff(m, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (_aborted || ply == 0 && _numExcluded > 0) {
+            return bestScore;
+        }
+        int bound = bestScore <= alpha0 ? UPPER
+            : bestScore >= beta ? LOWER : EXACT;
+        _table.store(board.key(), bestMove, depth, bound,
+                     toTable(bestScore, ply));
+        return bestScore;
+    }
+
+    /** Return true iff MOVE is excluded from the root search, having been
+     *  found already for another line. */
+    private boolean excluded(int move) {
+        for (int k = 0; k < _numExcluded; k += 1) {
+            if (_excluded[k] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Count a visit to a node and return true iff the search must stop
+     *  because my engine has been stopped or (checked only every
+     *  TIME_CHECK_MASK + 1 nodes) its time has run out, setting _aborted
+     *  if so. */
+    private boolean visitNode() {
+        _nodes += 1;
+        if (_engine.stopped()
+            || (_nodes & TIME_CHECK_MASK) == 0 && _engine.checkTime()) {
+            _aborted = true;
+        }
+        return _aborted;
+    }
+
+    /** Return the value of BOARD, a position at ply PLY, for the player to
+     *  move, as for findMove, but searching only captures and moves that
+     *  win at once, and those no more than QDEPTH plies deep.  Since
+     *  these change the number of groups, the static value before them
+     *  is unreliable.  The player to move may instead "stand pat" and
+     *  accept the static value, so that is a lower bound on the result.
+     *  Captures that could not raise the static value above ALPHA even
+     *  by DELTA_MARGIN are skipped (delta pruning), as are moves that
+     *  are neither such captures nor connect the mover's pieces.  No
+     *  winning move is skipped: each is tested (see connects) whenever
+     *  the mover has few enough regions for one to exist. */
+    private int quiesce(Board board, int ply, int qdepth, int alpha,
+                        int beta) {
+        _pvLength[ply] = ply;
+        if (visitNode()) {
+            return 0;
+        }
+        Piece side = board.turn();
+        Piece winner = board.winner();
+        if (winner == side) {
+            return WINNING_VALUE - ply;
+        } else if (winner == side.opposite()) {
+            return -WINNING_VALUE + ply;
+        } else if (winner == EMP) {
+            return 0;
+        }
+        int standPat = evaluate(board);
+        if (standPat >= beta || qdepth <= 0 || ply >= MAX_PLY) {
+            return standPat;
+        }
+        alpha = Math.max(alpha, standPat);
+        boolean mayConnect =
+            board.regionCount(side) <= MAX_CONNECTING_REGIONS;
+        boolean capturesUseful = standPat + DELTA_MARGIN > alpha;
+        if (!mayConnect && !capturesUseful) {
+            return standPat;
+        }
+        long mine = board.pieces(side);
+        int bestScore = standPat;
+        MoveList moves = _moveLists[ply];
+        board.legalMoves(moves);
+        for (int i = 0; i < moves.size(); i += 1) {
+            int m = moves.get(i);
+            if (!(capturesUseful && Move.isCapture(m))
+                && !(mayConnect && connects(mine, m))) {
+                continue;
+            }
+            board.makeMove(m);
+            int score = -quiesce(board, ply + 1, qdepth - 1, -beta, -alpha);
+            board.retract();
+            if (_aborted) {
+                break;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePV(ply, m);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /** Return true iff MOVE leaves the pieces PIECES of the player
+     *  making it contiguous, which wins the game.  Most moves leave some
+     *  piece isolated, which is cheaper to test for than connection. */
+    private static boolean connects(long pieces, int move) {
+        long after = pieces ^ Bitboards.bit(Move.fromIndex(move))
+            ^ Bitboards.bit(Move.toIndex(move));
+        return (after & (after - 1)) == 0
+            || (Bitboards.adjacent(after) & after) == after
+               && Bitboards.region(after & -after, after) == after;
+    }
+
+    /** Return the amount by which to reduce the search depth of the Kth
+     *  of MOVES, in a node searched to DEPTH: nonzero only for moves
+     *  late in the order that are neither captures nor killers. */
+    private int lateMoveReduction(MoveList moves, int k, int depth) {
+        if (!_lateMoveReductions || depth < LMR_DEPTH || k < LMR_MOVES
+            || moves.score(k) > MAX_HISTORY) {
+            return 0;
+        }
+        return k >= LMR_LATE_MOVES && depth > LMR_DEPTH ? 2 : 1;
+    }
+
+    /** Return the static value of BOARD for the player to move. */
+    private int evaluate(Board board) {
+        return _evaluator.score(board);
+    }
+
+    /** Return true iff SCORE indicates a forced win or loss. */
+    static boolean isWin(int score) {
+        return Math.abs(score) >= WINNING_VALUE - MAX_PLY;
+    }
+
+    /** Return SCORE, the value of a position at ply PLY, as recorded in
+     *  the transposition table: wins are recorded as distances from the
+     *  position rather than from the root. */
+    private static int toTable(int score, int ply) {
+        if (!isWin(score)) {
+            return score;
+        }
+        return score > 0 ? score + ply : score - ply;
+    }
+
+    /** Return the value at ply PLY of a position whose value SCORE was
+     *  recorded in the transposition table.  The inverse of toTable. */
+    private static int fromTable(int score, int ply) {
+        if (!isWin(score)) {
+            return score;
+        }
+        return score > 0 ? score - ply : score + ply;
+    }
+
+    /** Sort MOVES, the moves at ply PLY, into the order in which they
+     *  should be searched: PVMOVE (the previous iteration's move here,
+     *  or NO_MOVE), TTMOVE (the transposition table's best move, or
+     *  NO_MOVE), captures, my killer moves for PLY, and the remaining
+     *  moves in decreasing order of their history scores. */
+    private void orderMoves(MoveList moves, int ply, int pvMove,
+                            int ttMove) {
+        int[] killers = _killers[ply];
+        for (int i = 0; i < moves.size(); i += 1) {
+            int m = moves.get(i);
+            int score;
+            if (m == pvMove) {
+                score = PV_SCORE;
+            } else if (m == ttMove) {
+                score = TT_SCORE;
+            } else if (Move.isCapture(m)) {
+                score = CAPTURE_SCORE;
+            } else if (m == killers[0]) {
+                score = KILLER_SCORE;
+            } else if (m == killers[1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = _history[historyIndex(m)];
+            }
+            moves.setScore(i, score);
+        }
+        moves.sortByScore();
+    }
+
+    /** Record that quiet move MOVE at ply PLY caused a cutoff in a
+     *  search of depth DEPTH, making it a killer move for PLY and raising
+     *  its history score. */
+    private void recordCutoff(int move, int ply, int depth) {
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int k = historyIndex(move);
+        _history[k] += depth * depth;
+        if (_history[k] >= MAX_HISTORY) {
+            ageHistory();
+        }
+    }
+
+    /** Halve all history scores, so that recent cutoffs count for more
+     *  than old ones. */
+    private void ageHistory() {
+        for (int k = 0; k < _history.length; k += 1) {
+            _history[k] /= 2;
+        }
+    }
+
+    /** Return the index in _history of move code MOVE. */
+    private static int historyIndex(int move) {
+        return Move.fromIndex(move) * NUM_SQUARES + Move.toIndex(move);
+    }
+
+    /** Set _pv[PLY] to MOVE followed by _pv[PLY + 1]. */
+    private void updatePV(int ply, int move) {
+        int[] pv = _pv[ply];
+        pv[ply] = move;
+        int n = _pvLength[ply + 1];
+        System.arraycopy(_pv[ply + 1], ply + 1, pv, ply + 1, n - ply - 1);
+        _pvLength[ply] = Math.max(n, ply + 1);
+    }
+
+    /** Return an array of MAX_MULTI_PV new Lines. */
+    private static Line[] newLines() {
+        Line[] lines = new Line[EngineOptions.MAX_MULTI_PV];
+        for (int k = 0; k < lines.length; k += 1) {
+            lines[k] = new Line();
+        }
+        return lines;
+    }
+
+    /** Return the moves PV[0 .. N-1] as text. */
+    static String pvString(int[] pv, int n) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; k < n; k += 1) {
+            if (k > 0) {
+                result.append(' ');
+            }
+            result.append(Move.mv(pv[k]));
+        }
+        return result.toString();
+    }
+
+    /** The Engine I belong to. */
+    private final Engine _engine;
+
+    /** My engine's transposition table. */
+    private final TranspositionTable _table;
+
+    /** My number among my engine's Searchers. */
+    private final int _id;
+
+    /** The board on which the search makes and retracts its moves. */
+    private final Board _work = new Board();
+
+    /** Used to convey moves discovered by findMove, as a move code. */
+    private int _foundMove;
+
+    /** Results of the deepest finished iteration: its move (a move
+     *  code), depth, and value. */
+    private int _bestMove, _depth, _score;
+
+    /** Lists for the moves generated by findMove, indexed by ply, so that
+     *  no search level allocates its own move list. */
+    private final MoveList[] _moveLists;
+
+    /** Principal variations: _pv[P][P .. _pvLength[P]-1] is the best line
+     *  found from the node at ply P of the current search. */
+    private final int[][] _pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] _pvLength = new int[MAX_PLY + 1];
+
+    /** The principal variation of the last completed iteration for the
+     *  line being searched, in _prevPV[0 .. _prevPVLength-1]. */
+    private final int[] _prevPV = new int[MAX_PLY + 1];
+    private int _prevPVLength;
+
+    /** The two most recent quiet moves that caused cutoffs at each ply,
+     *  most recent first. */
+    private final int[][] _killers = new int[MAX_PLY + 1][2];
+
+    /** Scores of quiet moves by how often and how deep they have caused
+     *  cutoffs, indexed by historyIndex. */
+    private final int[] _history = new int[NUM_SQUARES * NUM_SQUARES];
+
+    /** A line of play from the root. */
+    private static class Line {
+        /** The first move of the line (a move code). */
+        private int move;
+        /** The value of the line for the player to move at the root. */
+        private int score;
+        /** The moves of the line, in pv[0 .. length-1]. */
+        private final int[] pv = new int[MAX_PLY + 1];
+        private int length;
+    }
+
+    /** The lines found by the last completed iteration, in
+     *  _lines[0 .. _numLines-1], best first, and those being found by
+     *  the current iteration. */
+    private Line[] _lines = newLines(), _newLines = newLines();
+    private int _numLines;
+
+    /** Root moves not to be searched, in _excluded[0 .. _numExcluded-1]:
+     *  those already found for other lines. */
+    private final int[] _excluded = new int[EngineOptions.MAX_MULTI_PV];
+    private int _numExcluded;
+
+    /** True iff null-move pruning and late-move reductions are used in
+     *  the current run. */
+    private boolean _nullMove, _lateMoveReductions;
+    /** The static evaluation of the current search. */
+    private Evaluator _evaluator;
+
+    /** True iff the current iteration was stopped. */
+    private boolean _aborted;
+    /** Number of nodes visited in the current run. */
+    private long _nodes;
+
+}
@@ -2,6 +2,7 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import static loa.Utils.*;
@@ -25,6 +26,10 @@ final class Square {
     /** The total number of possible squares. */
     static final int NUM_SQUARES = BOARD_SIZE * BOARD_SIZE;
 
+    /** The total number of lines (columns, rows, and diagonals in both
+     *  senses) along which pieces move.  See line(). */
+    static final int NUM_LINES = 2 * BOARD_SIZE + 2 * (2 * BOARD_SIZE - 1);
+
     /** The regular expression for a square designation (e.g.,
      *  a3). For convenience, it is in parentheses to make it a
      *  group.  This subpattern may be incorporated into
@@ -70,12 +75,6 @@ final class Square {
         DC = {  0,  1,  1,  1,  0, -1, -1, -1 },
         DR = {  1,  1,  0, -1, -1, -1,  0,  1 };
 
-    /** Mapping of (dc + 1, dr + 1) to direction, where (dc, dr) are the
-     *  column and row displacements of an adjacent square. */
-    private static final int[][] DISP_TO_DIR = {
-        { 5, 6, 7 }, { 4, -1, 0 }, { 3, 2, 1 }
-    };
-
     /** Return the Square that is STEPS>0 squares away from me in direction
      *  DIR, or null if there is no such square.
      *  DIR = 0 for north, 1 for north-east, 2 for east, etc., up to
@@ -84,23 +83,41 @@ final class Square {
         if (dir < 0 || dir > 7 || steps <= 0) {
             return null;
         }
-
-        int c = col() + DC[dir] * steps,
-            r = row() + DR[dir] * steps;
-        if (exists(c, r)) {
-            return sq(c, r);
-        } else {
-            return null;
-        }
+        Square[] ray = RAYS[_index][dir];
+        return steps <= ray.length ? ray[steps - 1] : null;
     }
 
     /** Return the direction (an int as defined in the documentation
      *  for moveDest) of the move THIS-TO. */
     int direction(Square to) {
         assert isValidMove(to);
-        int dc = col() > to.col() ? 0 : col() == to.col() ? 1 : 2,
-            dr = row() > to.row() ? 0 : row() == to.row() ? 1 : 2;
-        return DISP_TO_DIR[dc][dr];
+        return DIRECTIONS[_index][to._index];
+    }
+
+    /** Return the Squares reached from me in direction DIR, nearest
+     *  first: ray(DIR)[k - 1] == moveDest(DIR, k) for k > 0. */
+    Square[] ray(int dir) {
+        return RAYS[_index][dir];
+    }
+
+    /** Return the set of Squares strictly between me and TO, as a
+     *  bitboard.  This is empty unless THIS-TO is a valid move. */
+    long between(Square to) {
+        return BETWEEN[_index][to._index];
+    }
+
+    /** Return the number of the line through me in direction DIR (and
+     *  also DIR + 4 or DIR - 4), a value between 0 and NUM_LINES - 1.
+     *  Lines 0-7 are the columns, 8-15 the rows, 16-30 the SW-NE
+     *  diagonals, and 31-45 the NW-SE diagonals. */
+    int line(int dir) {
+        return LINES[_index][dir];
+    }
+
+    /** Return the set of Squares on line number LINE (see line()), as a
+     *  bitboard. */
+    static long lineMask(int line) {
+        return LINE_MASKS[line];
     }
 
 
@@ -143,6 +160,7 @@ final class Square {
     private Square(int col, int row) {
         _row = row;
         _col = col;
+        _index = (row << 3) + col;
         _str = String.format("%c%d", (char) ('a' + _col), 1 + _row);
     }
 
@@ -155,7 +173,7 @@ final class Square {
      *  for this Square. All distinct squares have distinct index values.
      */
     int index() {
-        return (_row << 3) + _col;
+        return _index;
     }
 
     @Override
@@ -203,9 +221,61 @@ final class Square {
         }
     }
 
+    /** Tables indexed by Square index and direction: the Squares reached
+     *  in that direction (see ray()), and the number of the line in that
+     *  direction (see line()). */
+    private static final Square[][][] RAYS = new Square[NUM_SQUARES][8][];
+    private static final int[][] LINES = new int[NUM_SQUARES][8];
+
+    /** Tables indexed by the indices of two Squares: the direction from
+     *  the first to the second (-1 if none), and the bitboard of Squares
+     *  strictly between them (empty if they share no line). */
+    private static final int[][] DIRECTIONS =
+        new int[NUM_SQUARES][NUM_SQUARES];
+    private static final long[][] BETWEEN =
+        new long[NUM_SQUARES][NUM_SQUARES];
+
+    /** The bitboard of each line, indexed by line number. */
+    private static final long[] LINE_MASKS = new long[NUM_LINES];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            int k = sq.index(), c = sq.col(), r = sq.row();
+            int[] lines = {
+                c, 3 * BOARD_SIZE - 1 + c - r, BOARD_SIZE + r,
+                4 * BOARD_SIZE - 1 + c + r
+            };
+            Arrays.fill(DIRECTIONS[k], -1);
+            for (int dir = 0; dir < 8; dir += 1) {
+                LINES[k][dir] = lines[dir % 4];
+                int n;
+                for (n = 0; exists(c + DC[dir] * (n + 1),
+                                   r + DR[dir] * (n + 1)); n += 1) {
+                    continue;
+                }
+                RAYS[k][dir] = new Square[n];
+                long between = 0;
+                for (int i = 0; i < n; i += 1) {
+                    Square to = sq(c + DC[dir] * (i + 1),
+                                   r + DR[dir] * (i + 1));
+                    RAYS[k][dir][i] = to;
+                    DIRECTIONS[k][to.index()] = dir;
+                    BETWEEN[k][to.index()] = between;
+                    between |= 1L << to.index();
+                }
+            }
+            for (int line : lines) {
+                LINE_MASKS[line] |= 1L << k;
+            }
+        }
+    }
+
     /** My row and column. */
     private final int _row, _col;
 
+    /** My index (see index()). */
+    private final int _index;
+
     /** My String denotation. */
     private final String _str;
 
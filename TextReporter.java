@@ -23,4 +23,10 @@ class TextReporter implements Reporter {
     public void reportMove(Move move) {
         System.out.printf("* %s%n", move);
     }
+
+    @Override
+    public void reportAnalysis(int rank, int depth, int score, String line) {
+        System.out.printf("* line %d depth %d score %d: %s%n",
+                          rank, depth, score, line);
+    }
 }
@@ -0,0 +1,179 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by Zobrist key (see
+ *  Board.key).  Each entry records, for one position, the depth to which
+ *  it was searched, the score found, whether that score is exact or only
+ *  a bound, the best move found (as a move code; see Move), and the
+ *  search in which it was stored (its age).
+ *
+ *  Entries live in two parallel long arrays and are grouped into buckets
+ *  of BUCKET_SIZE consecutive slots.  A new entry replaces the entry for
+ *  the same key if there is one, and otherwise the bucket's least
+ *  valuable entry: one left over from an earlier search if possible,
+ *  and otherwise the shallowest.
+ *
+ *  As in RegionCache, each slot stores its data and the exclusive or of
+ *  the data with the key, so that threads may share a table without
+ *  locking; a slot being overwritten concurrently reads as a miss.
+ *  @author Hankai Xing
+ */
+final class TranspositionTable {
+
+    /** Bound types: the stored score is exact, a lower bound on the true
+     *  score, or an upper bound on it. */
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /** Value returned by probe when a key is absent.  No stored entry has
+     *  this value, since its bound field would be invalid. */
+    static final long MISS = -1;
+
+    /** Number of entries in a bucket. */
+    static final int BUCKET_SIZE = 4;
+
+    /** Number of bytes per entry. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** A table occupying at most MEGABYTES megabytes (and at least one
+     *  bucket). */
+    TranspositionTable(int megabytes) {
+        long entries = ((long) megabytes << 20) / ENTRY_BYTES;
+        int logBuckets = 0;
+        while (logBuckets < MAX_LOG_BUCKETS
+               && ((long) BUCKET_SIZE << (logBuckets + 1)) <= entries) {
+            logBuckets += 1;
+        }
+        _bucketMask = (1 << logBuckets) - 1;
+        _keys = new long[BUCKET_SIZE << logBuckets];
+        _data = new long[BUCKET_SIZE << logBuckets];
+    }
+
+    /** Return the number of entries I can hold. */
+    int capacity() {
+        return _data.length;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+        _age = 0;
+    }
+
+    /** Indicate that a new search is starting, so that entries stored
+     *  from now on are preferred over older ones. */
+    void newSearch() {
+        _age = (_age + 1) & AGE_MASK;
+    }
+
+    /** Return the data stored for KEY, to be decoded with move, depth,
+     *  bound, and score, or MISS if there is none. */
+    long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + BUCKET_SIZE; i += 1) {
+            long data = _data[i];
+            if ((_keys[i] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /** Record that the position with key KEY, searched to DEPTH, has
+     *  score SCORE, which is of type BOUND (EXACT, LOWER, or UPPER), and
+     *  best move MOVE (a move code, or Move.NO_MOVE). */
+    void store(long key, int move, int depth, int bound, int score) {
+        int base = bucket(key);
+        int victim = base;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_SIZE; i += 1) {
+            long old = _data[i];
+            if ((_keys[i] ^ old) == key) {
+                if (move == Move.NO_MOVE) {
+                    move = move(old);
+                }
+                victim = i;
+                break;
+            }
+            int value = old == 0 ? -1
+                : depth(old) - (age(old) == _age ? 0 : STALE_PENALTY);
+            if (value < victimValue) {
+                victim = i;
+                victimValue = value;
+            }
+        }
+        long data = (move & MOVE_MASK)
+            | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) _age << AGE_SHIFT)
+            | ((long) score << SCORE_SHIFT);
+        _data[victim] = data;
+        _keys[victim] = key ^ data;
+    }
+
+    /** Return the move code recorded in DATA (a non-MISS result of
+     *  probe). */
+    static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    /** Return the depth recorded in DATA. */
+    static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    /** Return the bound type recorded in DATA. */
+    static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /** Return the score recorded in DATA. */
+    static int score(long data) {
+        return (int) (data >> SCORE_SHIFT);
+    }
+
+    /** Return the age recorded in DATA. */
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & AGE_MASK);
+    }
+
+    /** Return the index of the first slot of KEY's bucket. */
+    private int bucket(long key) {
+        return ((int) (key >>> BUCKET_KEY_SHIFT) & _bucketMask)
+            * BUCKET_SIZE;
+    }
+
+    /* Layout of an entry's data: bits 0-14 move, 15-22 depth, 23-24
+     * bound, 25-30 age, 32-63 score. */
+
+    /** Masks and positions of the fields of an entry's data. */
+    private static final int
+        MOVE_MASK = (1 << 15) - 1,
+        DEPTH_SHIFT = 15, DEPTH_MASK = (1 << 8) - 1,
+        BOUND_SHIFT = 23, BOUND_MASK = 3,
+        AGE_SHIFT = 25, AGE_MASK = (1 << 6) - 1,
+        SCORE_SHIFT = 32;
+
+    /** Depth by which an entry from an earlier search is devalued when
+     *  choosing an entry to replace. */
+    private static final int STALE_PENALTY = 64;
+
+    /** Limit on log (base 2) of the number of buckets. */
+    private static final int MAX_LOG_BUCKETS = 28;
+
+    /** Bucket numbers are taken from the high-order bits of keys,
+     *  starting here. */
+    private static final int BUCKET_KEY_SHIFT = 32;
+
+    /** Mask for the bucket number. */
+    private final int _bucketMask;
+    /** Per slot, the data stored there and its exclusive or with the
+     *  key. */
+    private final long[] _keys, _data;
+    /** The age given to newly stored entries. */
+    private int _age;
+
+}
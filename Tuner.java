@@ -0,0 +1,397 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static loa.Bitboards.*;
+import static loa.FeatureEvaluator.NUM_WEIGHTS;
+import static loa.Piece.*;
+
+/** Tunes the weights of FeatureEvaluator from positions labelled with
+ *  the results of the games they came from, by minimizing the squared
+ *  difference between each result and the win probability predicted from
+ *  the position's score (the "Texel" method).  Usage:
+ *      java loa.Tuner generate GAMES CORPUS [ SEED ]
+ *      java loa.Tuner tune CORPUS WEIGHTS [ EPOCHS ]
+ *  The first plays GAMES games of shallow self-play, each opening with a
+ *  few random moves, and writes their positions to the file CORPUS.  The
+ *  second tunes the weights for EPOCHS passes (default DEFAULT_EPOCHS)
+ *  over CORPUS, and writes them to the file WEIGHTS, to be read with
+ *  --weights=WEIGHTS.
+ *
+ *  A corpus has one position per line: the black and white pieces as
+ *  hexadecimal bitboards, the side to move ('b' or 'w'), and the result
+ *  for white (1, 0.5, or 0).  The corpus is read once, in chunks of
+ *  CHUNK_SIZE lines, which the worker threads (one per processor) parse
+ *  while the next chunk is read.  Only the terms of each position's
+ *  score (see FeatureEvaluator.terms) and its result are kept, in
+ *  primitive arrays, and each pass divides these among the workers.
+ *  These take NUM_WEIGHTS + 1 doubles (32 bytes) per position, less
+ *  than the position's line of text, so a corpus of a million positions
+ *  needs about 32 MB; keeping them saves parsing the corpus again on
+ *  every pass.  An empty corpus is an error.
+ *  @author Hankai Xing
+ */
+class Tuner {
+
+    /** Default number of passes over the corpus. */
+    static final int DEFAULT_EPOCHS = 100;
+
+    /** Number of positions read at once. */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    /** Search depth of the players in generated games. */
+    static final int GENERATE_DEPTH = 2;
+
+    /** Number of random moves at the start of each generated game, whose
+     *  positions are not recorded. */
+    static final int RANDOM_PLIES = 8;
+
+    /** Step size of the optimizer. */
+    static final double LEARNING_RATE = 2.0;
+
+    /** Decay rates of the optimizer's averages of the gradient and of its
+     *  square (see step), and a small value guarding against division by
+     *  zero. */
+    static final double BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;
+
+    /** Number of passes used to fit the scale of the predicted win
+     *  probability. */
+    static final int SCALE_PASSES = 16;
+
+    /** Run as directed by ARGS (see above). */
+    public static void main(String... args) {
+        try {
+            if (args.length >= 3 && args[0].equals("generate")) {
+                long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+                generate(Integer.parseInt(args[1]), args[2], seed);
+            } else if (args.length >= 3 && args[0].equals("tune")) {
+                int epochs = args.length > 3 ? Integer.parseInt(args[3])
+                    : DEFAULT_EPOCHS;
+                new Tuner(args[1]).tune(epochs, args[2]);
+            } else {
+                System.err.println("Usage: java loa.Tuner generate GAMES"
+                                   + " CORPUS [ SEED ]");
+                System.err.println("       java loa.Tuner tune CORPUS"
+                                   + " WEIGHTS [ EPOCHS ]");
+                System.exit(1);
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Play GAMES games of self-play, using random numbers seeded with
+     *  SEED, writing their positions to the file named CORPUS.  A game's
+     *  record ends when Board.gameOver says so, which includes a side to
+     *  move that has no legal move, so each position recorded has
+     *  one. */
+    static void generate(int games, String corpus, long seed)
+        throws IOException {
+        Random random = new Random(seed);
+        EngineOptions options = new EngineOptions();
+        options.setMaxDepth(GENERATE_DEPTH);
+        options.setTimeLimit(Integer.MAX_VALUE);
+        options.setTableSize(1);
+        Engine engine = new Engine(options);
+        MoveList moves = new MoveList();
+        List<BoardSnapshot> positions = new ArrayList<>();
+        try (PrintStream out = new PrintStream(corpus)) {
+            for (int game = 0; game < games; game += 1) {
+                Board board = new Board();
+                positions.clear();
+                while (!board.gameOver()) {
+                    if (board.movesMade() < RANDOM_PLIES) {
+                        board.legalMoves(moves);
+                        int k = random.nextInt(moves.size());
+                        board.makeMove(moves.get(k));
+                    } else {
+                        positions.add(board.snapshot());
+                        board.makeMove(engine.search(board));
+                    }
+                }
+                String result = board.winner() == WP ? "1"
+                    : board.winner() == BP ? "0" : "0.5";
+                for (BoardSnapshot position : positions) {
+                    out.printf("%016x %016x %s %s%n", position.pieces(BP),
+                               position.pieces(WP),
+                               position.turn().abbrev(), result);
+                }
+            }
+        }
+    }
+
+    /** A Tuner for the corpus in the file named CORPUS. */
+    Tuner(String corpus) {
+        _corpus = corpus;
+        _threads = Runtime.getRuntime().availableProcessors();
+        _weights = new double[NUM_WEIGHTS];
+        for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+            _weights[k] = FeatureEvaluator.DEFAULT_WEIGHTS[k];
+        }
+    }
+
+    /** Starting from the default weights, fit the scale of the predicted
+     *  win probabilities, and then tune the weights for EPOCHS passes
+     *  over the corpus.  Write the weights to the file named WEIGHTS. */
+    void tune(int epochs, String weights) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(_threads);
+        try {
+            load(workers);
+            double[] sums = new double[NUM_WEIGHTS + 2];
+            fitScale(workers, sums);
+            System.out.printf("%d positions, scale %.5f, loss %.6f%n",
+                              _size, _scale, sums[0] / sums[1]);
+            double[] mean = new double[NUM_WEIGHTS],
+                meanSquare = new double[NUM_WEIGHTS];
+            for (int epoch = 1; epoch <= epochs; epoch += 1) {
+                pass(workers, sums);
+                step(sums, epoch, mean, meanSquare);
+                System.out.printf("epoch %d loss %.6f weights %s%n",
+                                  epoch, sums[0] / sums[1],
+                                  evaluator());
+            }
+        } finally {
+            workers.shutdown();
+        }
+        try (PrintStream out = new PrintStream(weights)) {
+            out.printf("# Tuned on %s%n", _corpus);
+            evaluator().write(out);
+        }
+    }
+
+    /** Return an evaluator using my current weights, rounded. */
+    FeatureEvaluator evaluator() {
+        int[] weights = new int[NUM_WEIGHTS];
+        for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+            weights[k] = (int) Math.round(_weights[k]);
+        }
+        return new FeatureEvaluator(weights);
+    }
+
+    /** Read the corpus into _terms and _results, using WORKERS to parse
+     *  it.  Throws IllegalArgumentException if it has no positions. */
+    private void load(ExecutorService workers) throws IOException {
+        String[] reading = new String[CHUNK_SIZE],
+            parsing = new String[CHUNK_SIZE];
+        List<Future<double[]>> results = new ArrayList<>();
+        _size = 0;
+        try (BufferedReader inp =
+             new BufferedReader(new FileReader(_corpus))) {
+            int n = read(inp, reading);
+            while (n > 0) {
+                String[] chunk = reading;
+                reading = parsing;
+                parsing = chunk;
+                int first = _size;
+                _size += n;
+                if (_size > _results.length) {
+                    int capacity = Math.max(_size, 2 * _results.length);
+                    _results = Arrays.copyOf(_results, capacity);
+                    _terms = Arrays.copyOf(_terms, capacity * NUM_WEIGHTS);
+                }
+                int slice = (n + _threads - 1) / _threads;
+                for (int start = 0; start < n; start += slice) {
+                    int from = start, to = Math.min(n, start + slice);
+                    results.add(workers.submit(() -> {
+                        parse(chunk, from, to, first + from);
+                        return null;
+                    }));
+                }
+                n = read(inp, reading);
+                collect(results, null);
+            }
+        }
+        if (_size == 0) {
+            throw new IllegalArgumentException("no positions in corpus "
+                                               + _corpus);
+        }
+    }
+
+    /** Set _scale to the value minimizing the loss with the current
+     *  weights, found by golden-section search over its logarithm, using
+     *  WORKERS.  Each step reuses the loss at one of the previous step's
+     *  two probes, and so needs only one pass.  Set SUMS as for pass at
+     *  the final scale. */
+    private void fitScale(ExecutorService workers, double[] sums) {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double lo = Math.log(1e-4), hi = Math.log(1.0);
+        double x1 = hi - ratio * (hi - lo), x2 = lo + ratio * (hi - lo);
+        double loss1 = loss(workers, x1, sums),
+            loss2 = loss(workers, x2, sums);
+        for (int i = 0; i < SCALE_PASSES; i += 1) {
+            if (loss1 < loss2) {
+                hi = x2;
+                x2 = x1;
+                loss2 = loss1;
+                x1 = hi - ratio * (hi - lo);
+                loss1 = loss(workers, x1, sums);
+            } else {
+                lo = x1;
+                x1 = x2;
+                loss1 = loss2;
+                x2 = lo + ratio * (hi - lo);
+                loss2 = loss(workers, x2, sums);
+            }
+        }
+        loss(workers, (lo + hi) / 2, sums);
+    }
+
+    /** Set _scale to exp(LOGSCALE) and return the total loss, using
+     *  WORKERS and setting SUMS as for pass. */
+    private double loss(ExecutorService workers, double logScale,
+                        double[] sums) {
+        _scale = Math.exp(logScale);
+        pass(workers, sums);
+        return sums[0];
+    }
+
+    /** Make one pass over the corpus with the current weights and scale,
+     *  using WORKERS.  Set SUMS[0] to the total loss, SUMS[1] to the number
+     *  of positions, and SUMS[2 + K] to the derivative of the total loss
+     *  by weight K. */
+    private void pass(ExecutorService workers, double[] sums) {
+        Arrays.fill(sums, 0.0);
+        List<Future<double[]>> results = new ArrayList<>();
+        int slice = Math.max(1, (_size + _threads - 1) / _threads);
+        for (int start = 0; start < _size; start += slice) {
+            int from = start, to = Math.min(_size, start + slice);
+            results.add(workers.submit(() -> score(from, to)));
+        }
+        collect(results, sums);
+    }
+
+    /** Read up to LINES.length lines from INP into LINES, returning the
+     *  number read. */
+    private static int read(BufferedReader inp, String[] lines)
+        throws IOException {
+        int n;
+        for (n = 0; n < lines.length; n += 1) {
+            lines[n] = inp.readLine();
+            if (lines[n] == null) {
+                break;
+            }
+        }
+        return n;
+    }
+
+    /** Wait for each of RESULTS, of the form returned by score, add it to
+     *  SUMS (unless SUMS is null), and clear RESULTS. */
+    private static void collect(List<Future<double[]>> results,
+                                double[] sums) {
+        for (Future<double[]> result : results) {
+            double[] partial;
+            try {
+                partial = result.get();
+            } catch (InterruptedException | ExecutionException excp) {
+                Throwable cause = excp.getCause();
+                if (cause instanceof IllegalArgumentException) {
+                    throw (IllegalArgumentException) cause;
+                }
+                throw new IllegalStateException(excp);
+            }
+            for (int k = 0; sums != null && k < sums.length; k += 1) {
+                sums[k] += partial[k];
+            }
+        }
+        results.clear();
+    }
+
+    /** Return the sums described in pass for positions FROM through
+     *  TO - 1. */
+    private double[] score(int from, int to) {
+        double[] sums = new double[NUM_WEIGHTS + 2];
+        double[] terms = _terms, weights = _weights;
+        for (int i = from; i < to; i += 1) {
+            int t = i * NUM_WEIGHTS;
+            double score = 0.0;
+            for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+                score += weights[k] * terms[t + k];
+            }
+            double predicted = 1.0 / (1.0 + Math.exp(-_scale * score)),
+                error = predicted - _results[i],
+                slope = 2.0 * error * _scale * predicted * (1.0 - predicted);
+            sums[0] += error * error;
+            sums[1] += 1.0;
+            for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+                sums[2 + k] += slope * terms[t + k];
+            }
+        }
+        return sums;
+    }
+
+    /** Parse corpus lines LINES[FROM] through LINES[TO - 1], storing
+     *  their terms and results as positions FIRST onward. */
+    private void parse(String[] lines, int from, int to, int first) {
+        Features black = new Features(), white = new Features();
+        for (int i = from; i < to; i += 1) {
+            String[] fields = lines[i].trim().split("\\s+");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("bad corpus line: "
+                                                   + lines[i]);
+            }
+            int p = first + i - from;
+            setFeatures(black, Long.parseUnsignedLong(fields[0], 16));
+            setFeatures(white, Long.parseUnsignedLong(fields[1], 16));
+            FeatureEvaluator.terms(black, white, _terms, p * NUM_WEIGHTS);
+            _results[p] = Double.parseDouble(fields[3]);
+        }
+    }
+
+    /** Set FEATURES to describe the set of pieces PIECES. */
+    private static void setFeatures(Features features, long pieces) {
+        features.clear();
+        long added = EMPTY;
+        for (long rest = pieces; rest != EMPTY; rest &= rest - 1) {
+            int k = first(rest);
+            features.add(k, added);
+            added |= bit(k);
+        }
+    }
+
+    /** Adjust the weights by one step of the Adam optimizer for the pass
+     *  described by SUMS, the EPOCHth, where MEAN and MEANSQUARE hold the
+     *  decaying averages of the gradient and of its square. */
+    private void step(double[] sums, int epoch, double[] mean,
+                      double[] meanSquare) {
+        for (int k = 0; k < NUM_WEIGHTS; k += 1) {
+            double gradient = sums[2 + k] / sums[1];
+            mean[k] = BETA1 * mean[k] + (1 - BETA1) * gradient;
+            meanSquare[k] = BETA2 * meanSquare[k]
+                + (1 - BETA2) * gradient * gradient;
+            double m = mean[k] / (1 - Math.pow(BETA1, epoch)),
+                v = meanSquare[k] / (1 - Math.pow(BETA2, epoch));
+            _weights[k] -= LEARNING_RATE * m / (Math.sqrt(v) + EPSILON);
+        }
+    }
+
+    /** Name of the corpus file. */
+    private final String _corpus;
+    /** Number of worker threads. */
+    private final int _threads;
+    /** The weights being tuned, indexed as for FeatureEvaluator. */
+    private final double[] _weights;
+    /** For each position of the corpus, the terms of its score (see
+     *  FeatureEvaluator.terms), at NUM_WEIGHTS * P onward for position P,
+     *  and its result for white. */
+    private double[] _terms = new double[0], _results = new double[0];
+    /** Number of positions in the corpus. */
+    private int _size;
+    /** The predicted probability of a white win in a position with score
+     *  S for white is 1 / (1 + exp(-_scale * S)). */
+    private double _scale;
+
+}